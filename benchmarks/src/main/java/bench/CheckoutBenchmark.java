@@ -0,0 +1,147 @@
+package bench;
+
+import model.Basket;
+import model.Cashier;
+import model.CatalogLayout;
+import model.Receipt;
+import model.Store;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import persistence.AsyncReceiptPersister;
+import persistence.DirectReceiptPersister;
+import persistence.ReceiptJournal;
+import persistence.ReceiptPersister;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of {@link Store#processTransaction} per till thread. Run with {@code -t N} to
+ * simulate N tills sharing one store.
+ * <p>
+ * {@code persistence} selects what happens to each receipt: {@code none} drops it,
+ * {@code journal} appends it to a {@link ReceiptJournal} on the till thread and
+ * {@code async-journal} hands it to an {@link AsyncReceiptPersister} in front of the journal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CheckoutBenchmark {
+    private static final AtomicLong TILL_SEEDS = new AtomicLong(42);
+
+    @Param({"1000", "100000"})
+    int catalogSize;
+
+    @Param({"1", "10"})
+    int basketSize;
+
+    @Param({"none", "journal", "async-journal"})
+    String persistence;
+
+    @Param({"INDEXED", "COLUMNAR"})
+    CatalogLayout layout;
+
+    Store store;
+    Cashier cashier;
+    private ReceiptPersister persister;
+    private Path journalDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        switch (persistence) {
+            case "none":
+                persister = StoreFixture.discardingPersister();
+                break;
+            case "journal":
+                journalDir = Files.createTempDirectory("bench-journal");
+                persister = new DirectReceiptPersister(ReceiptJournal.open(journalDir));
+                break;
+            case "async-journal":
+                journalDir = Files.createTempDirectory("bench-journal");
+                persister = new AsyncReceiptPersister(ReceiptJournal.open(journalDir), 4096, 512);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown persistence mode " + persistence);
+        }
+        store = StoreFixture.newStore(catalogSize, persister, layout);
+        cashier = StoreFixture.cashier();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        persister.close();
+        if (journalDir != null) {
+            try (var files = Files.list(journalDir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(journalDir);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Till {
+        Map<Integer, Integer>[] baskets;
+        Basket[] scans;
+        final Basket basket = new Basket();
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(CheckoutBenchmark benchmark) {
+            baskets = StoreFixture.sellableBaskets(benchmark.catalogSize, benchmark.basketSize,
+                    TILL_SEEDS.getAndIncrement());
+            scans = new Basket[baskets.length];
+            for (int i = 0; i < baskets.length; i++) {
+                scans[i] = Basket.of(baskets[i]);
+            }
+        }
+
+        Map<Integer, Integer> nextBasket() {
+            Map<Integer, Integer> basket = baskets[next];
+            next = (next + 1) & (baskets.length - 1);
+            return basket;
+        }
+
+        /**
+         * Rings the next basket up into the till's one reusable {@link Basket}, as a till would.
+         */
+        Basket scanNextBasket() {
+            Basket scanned = scans[next];
+            next = (next + 1) & (scans.length - 1);
+            basket.clear();
+            for (int line = 0; line < scanned.size(); line++) {
+                basket.add(scanned.getProductId(line), scanned.getQuantity(line));
+            }
+            return basket;
+        }
+    }
+
+    @Benchmark
+    public Receipt processTransaction(Till till) throws Exception {
+        return store.processTransaction(cashier, till.nextBasket());
+    }
+
+    @Benchmark
+    public Receipt processReusedBasket(Till till) throws Exception {
+        return store.processTransaction(cashier, till.scanNextBasket());
+    }
+}
@@ -0,0 +1,54 @@
+package bench;
+
+import model.Product;
+import model.Store;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of resolving a product id against catalogs of different sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+    @Param({"1000", "10000", "100000"})
+    int catalogSize;
+
+    Store store;
+    int[] ids;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = StoreFixture.newStore(catalogSize, StoreFixture.discardingPersister());
+        SplittableRandom random = new SplittableRandom(7);
+        ids = new int[4096];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 1 + random.nextInt(catalogSize);
+        }
+    }
+
+    @Benchmark
+    public Product findProductById() {
+        int id = ids[next];
+        next = (next + 1) & (ids.length - 1);
+        return store.findProductById(id);
+    }
+}
@@ -0,0 +1,115 @@
+package bench;
+
+import model.Cashier;
+import model.FoodProduct;
+import model.NonFoodProduct;
+import model.Receipt;
+import model.SaleItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import persistence.ReceiptCodec;
+import persistence.ReceiptJournal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering and persistence of a single receipt. {@code serialize} and {@code deserialize}
+ * use the per-receipt {@code .ser} file in the working directory, as checkout does by default.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReceiptBenchmark {
+    @Param({"1", "10", "50"})
+    int itemCount;
+
+    Receipt receipt;
+    ReceiptCodec codec;
+    ByteBuffer encoded;
+    ReceiptJournal journal;
+    private Path journalDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Cashier cashier = StoreFixture.cashier();
+        List<SaleItem> items = new ArrayList<>();
+        for (int i = 0; i < itemCount; i++) {
+            items.add(i % 2 == 0
+                    ? new SaleItem(new FoodProduct(i, "Food " + i, 1.25, LocalDate.now().plusDays(5), 100), 2, 1.63)
+                    : new SaleItem(new NonFoodProduct(i, "Goods " + i, 3.40, LocalDate.now().plusDays(400), 100), 1, 5.10));
+        }
+        receipt = new Receipt(cashier, items);
+        receipt.serialize();
+
+        codec = new ReceiptCodec();
+        encoded = ByteBuffer.wrap(codec.toByteArray(receipt));
+
+        journalDir = Files.createTempDirectory("bench-receipts");
+        journal = ReceiptJournal.open(journalDir);
+        journal.write(Collections.singletonList(receipt));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        try (var files = Files.list(journalDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(journalDir);
+        Files.deleteIfExists(Path.of("receipt-" + receipt.getNumber() + ".ser"));
+    }
+
+    @Benchmark
+    public void serialize() throws IOException {
+        receipt.serialize();
+    }
+
+    @Benchmark
+    public Receipt deserialize() throws Exception {
+        return Receipt.deserialize(receipt.getNumber());
+    }
+
+    @Benchmark
+    public String render() {
+        return receipt.toString();
+    }
+
+    @Benchmark
+    public int codecEncode() {
+        return codec.encode(receipt);
+    }
+
+    @Benchmark
+    public Receipt codecDecode() throws IOException {
+        return codec.decode(encoded.duplicate());
+    }
+
+    @Benchmark
+    public Receipt journalRead() throws Exception {
+        return Receipt.deserialize(journal, receipt.getNumber());
+    }
+}
@@ -0,0 +1,92 @@
+package bench;
+
+import model.Cashier;
+import model.CatalogLayout;
+import model.Product;
+import model.Store;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The financial aggregates and catalog queries that dashboards and the replenishment job poll.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReportingBenchmark {
+    @Param({"1000", "100000"})
+    int catalogSize;
+
+    @Param({"10000"})
+    int receiptCount;
+
+    @Param({"INDEXED", "COLUMNAR"})
+    CatalogLayout layout;
+
+    Store store;
+    LocalDate today;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        store = StoreFixture.newStore(catalogSize, StoreFixture.discardingPersister(), layout);
+        Cashier cashier = StoreFixture.cashier();
+        Map<Integer, Integer>[] baskets = StoreFixture.sellableBaskets(catalogSize, 5, 1);
+        for (int i = 0; i < receiptCount; i++) {
+            store.processTransaction(cashier, baskets[i % baskets.length]);
+        }
+        today = LocalDate.now();
+    }
+
+    @Benchmark
+    public double computeTotalRevenue() {
+        return store.computeTotalRevenue();
+    }
+
+    @Benchmark
+    public double computeStaffPayroll() {
+        return store.computeStaffPayroll();
+    }
+
+    @Benchmark
+    public double computeDeliveryCosts() {
+        return store.computeDeliveryCosts();
+    }
+
+    @Benchmark
+    public double computeNetProfit() {
+        return store.computeNetProfit();
+    }
+
+    @Benchmark
+    public List<Product> findExpiredItems() {
+        return store.findExpiredItems(today);
+    }
+
+    @Benchmark
+    public List<Product> findItemsCloseToExpiry() {
+        return store.findItemsCloseToExpiry(today);
+    }
+
+    @Benchmark
+    public List<Product> findItemsRunningLow() {
+        return store.findItemsRunningLow(StoreFixture.LOW_STOCK_LIMIT);
+    }
+}
@@ -0,0 +1,87 @@
+package bench;
+
+import model.Cashier;
+import model.CatalogLayout;
+import model.FoodProduct;
+import model.NonFoodProduct;
+import model.Product;
+import model.Store;
+import persistence.DirectReceiptPersister;
+import persistence.ReceiptPersister;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Builds the generated catalog and baskets that every benchmark runs against.
+ * <p>
+ * Product ids run from 1 to the catalog size. Every product whose {@code id % 100} is below
+ * {@link #EXPIRED_PER_HUNDRED} is already expired, and every fiftieth product is nearly sold
+ * out, so expiry and low-stock queries have something to find. All other products carry
+ * enough stock to never run out during a run.
+ */
+final class StoreFixture {
+    static final int EXPIRED_PER_HUNDRED = 5;
+    static final int LOW_STOCK_LIMIT = 5;
+    static final int BASKETS_PER_TILL = 1024;
+
+    private StoreFixture() {
+    }
+
+    static ReceiptPersister discardingPersister() {
+        return new DirectReceiptPersister(receipts -> { });
+    }
+
+    static Store newStore(int catalogSize, ReceiptPersister persister) {
+        return newStore(catalogSize, persister, CatalogLayout.INDEXED);
+    }
+
+    static Store newStore(int catalogSize, ReceiptPersister persister, CatalogLayout layout) {
+        Store store = new Store(0.15, 3, persister);
+        store.setCatalogLayout(layout);
+        store.registerCashier(cashier());
+        LocalDate today = LocalDate.now();
+        for (int id = 1; id <= catalogSize; id++) {
+            LocalDate expiry = today.plusDays((id % 100) - EXPIRED_PER_HUNDRED);
+            int qty = id % 50 == 0 ? id % (LOW_STOCK_LIMIT + 1) : 1_000_000_000;
+            double deliveryPrice = 0.50 + (id % 200) * 0.05;
+            Product product = id % 2 == 0
+                    ? new FoodProduct(id, "Food " + id, deliveryPrice, expiry, qty)
+                    : new NonFoodProduct(id, "Goods " + id, deliveryPrice, expiry.plusDays(365), qty);
+            store.stockProduct(product);
+        }
+        return store;
+    }
+
+    static Cashier cashier() {
+        return new Cashier(1, "Bench Cashier", 1500.0);
+    }
+
+    /**
+     * @return baskets of {@code basketSize} distinct products that are in date and in stock
+     */
+    @SuppressWarnings("unchecked")
+    static Map<Integer, Integer>[] sellableBaskets(int catalogSize, int basketSize, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Map<Integer, Integer>[] baskets = new Map[BASKETS_PER_TILL];
+        for (int b = 0; b < baskets.length; b++) {
+            Map<Integer, Integer> basket = new HashMap<>();
+            while (basket.size() < basketSize) {
+                basket.put(sellableId(random, catalogSize), 1 + random.nextInt(3));
+            }
+            baskets[b] = basket;
+        }
+        return baskets;
+    }
+
+    static int sellableId(SplittableRandom random, int catalogSize) {
+        while (true) {
+            int id = 1 + random.nextInt(catalogSize);
+            if (id % 100 >= EXPIRED_PER_HUNDRED + 3 && id % 50 != 0) {
+                return id;
+            }
+        }
+    }
+}
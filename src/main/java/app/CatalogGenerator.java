@@ -0,0 +1,35 @@
+package app;
+
+import model.Cashier;
+import model.FoodProduct;
+import model.NonFoodProduct;
+import model.Product;
+import model.Store;
+
+import java.time.LocalDate;
+
+/**
+ * Fills a store with a synthetic catalog for the server and load driver. Product ids run from 1
+ * to the catalog size, nothing is expired and stock is high enough that a load test never runs
+ * a product out; cashier ids run from 1 to the cashier count.
+ */
+final class CatalogGenerator {
+    static final int STOCK_PER_PRODUCT = 1_000_000_000;
+
+    private CatalogGenerator() {
+    }
+
+    static void populate(Store store, int catalogSize, int cashierCount) {
+        LocalDate today = LocalDate.now();
+        for (int id = 1; id <= catalogSize; id++) {
+            double deliveryPrice = 0.50 + (id % 200) * 0.05;
+            Product product = id % 2 == 0
+                    ? new FoodProduct(id, "Food " + id, deliveryPrice, today.plusDays(30 + id % 60), STOCK_PER_PRODUCT)
+                    : new NonFoodProduct(id, "Goods " + id, deliveryPrice, today.plusDays(365), STOCK_PER_PRODUCT);
+            store.stockProduct(product);
+        }
+        for (int id = 1; id <= cashierCount; id++) {
+            store.registerCashier(new Cashier(id, "Cashier " + id, 1500.0));
+        }
+    }
+}
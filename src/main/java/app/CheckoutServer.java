@@ -0,0 +1,192 @@
+package app;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import metrics.CheckoutMetrics;
+import model.Basket;
+import model.Cashier;
+import model.CheckoutResult;
+import model.Money;
+import model.Receipt;
+import model.RejectionCode;
+import model.Store;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves a {@link Store} over HTTP, running every request on its own virtual thread when the
+ * JDK has them.
+ * <ul>
+ *     <li>{@code POST /checkout?cashier=ID} with a body of {@code productId:qty} pairs separated
+ *     by commas sells the basket. Answers 200 with the receipt number and total, 409 when a
+ *     product is out of stock, 410 when one is expired or unknown and 400 for a malformed
+ *     request, a quantity that is not positive or a cashier the store has not registered.</li>
+ *     <li>{@code GET /report} answers with revenue, payroll, delivery costs, net profit and the
+ *     transaction count.</li>
+ *     <li>{@code GET /metrics} answers with the current {@link CheckoutMetrics} snapshot.</li>
+ * </ul>
+ * Responses are plain UTF-8 text.
+ */
+public class CheckoutServer implements AutoCloseable {
+    static {
+        // Without this the response body waits behind the headers for a delayed ACK, about 40ms per request.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final Store store;
+    private final CheckoutMetrics metrics;
+    private final HttpServer http;
+    private final ExecutorService executor;
+
+    /**
+     * @param address where to listen; port 0 picks a free one
+     */
+    public CheckoutServer(Store store, CheckoutMetrics metrics, InetSocketAddress address) throws IOException {
+        this.store = store;
+        this.metrics = metrics;
+        this.executor = Threads.perTaskExecutor("checkout-http", Runtime.getRuntime().availableProcessors() * 8);
+        this.http = HttpServer.create(address, 1024);
+        http.setExecutor(executor);
+        http.createContext("/checkout", this::handleCheckout);
+        http.createContext("/report", this::handleReport);
+        http.createContext("/metrics", this::handleMetrics);
+    }
+
+    public void start() {
+        http.start();
+    }
+
+    public InetSocketAddress getAddress() {
+        return http.getAddress();
+    }
+
+    private void handleCheckout(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, "Use POST.");
+            return;
+        }
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        Cashier cashier;
+        Basket basket;
+        try {
+            cashier = store.findCashierById(Integer.parseInt(queryParameter(exchange.getRequestURI(), "cashier")));
+            basket = parseBasket(body);
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, "Malformed checkout request: " + e.getMessage());
+            return;
+        }
+        if (cashier == null) {
+            respond(exchange, 400, "Unknown cashier.");
+            return;
+        }
+
+        CheckoutResult result;
+        try {
+            result = store.checkout(cashier, basket);
+        } catch (Exception e) {
+            respond(exchange, 500, e.toString());
+            return;
+        }
+        if (result.isAccepted()) {
+            Receipt receipt = result.getReceipt();
+            respond(exchange, 200, "receipt=" + receipt.getNumber() + " total=" + Money.format(receipt.getTotalAmountCents()));
+        } else {
+            respond(exchange, statusFor(result.getRejectionCode()), result.getRejection().getMessage());
+        }
+    }
+
+    private static int statusFor(RejectionCode rejectionCode) {
+        switch (rejectionCode) {
+            case OUT_OF_STOCK:
+                return 409;
+            case EXPIRED:
+            case UNKNOWN_PRODUCT:
+                return 410;
+            case INVALID_RECEIPT:
+                return 400;
+            default:
+                return 500;
+        }
+    }
+
+    private void handleReport(HttpExchange exchange) throws IOException {
+        String report = String.format("revenue=%s%npayroll=%s%ndeliveryCosts=%s%nnetProfit=%s%ntransactions=%d%n",
+                Money.format(store.computeTotalRevenueCents()), Money.format(store.computeStaffPayrollCents()),
+                Money.format(store.computeDeliveryCostsCents()), Money.format(store.computeNetProfitCents()),
+                store.getTotalTransactionCount());
+        respond(exchange, 200, report);
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        respond(exchange, 200, metrics.snapshot().toString());
+    }
+
+    /**
+     * Parses {@code "12:3,40:1"} into product id to quantity.
+     *
+     * @throws IllegalArgumentException if a line is malformed or its quantity is not positive
+     */
+    static Basket parseBasket(String body) {
+        Basket basket = new Basket();
+        for (String line : body.trim().split(",")) {
+            if (line.isBlank()) {
+                continue;
+            }
+            int separator = line.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalArgumentException("expected productId:qty but got '" + line.trim() + "'");
+            }
+            int qty = Integer.parseInt(line.substring(separator + 1).trim());
+            if (qty <= 0) {
+                throw new IllegalArgumentException("quantity must be positive but got '" + line.trim() + "'");
+            }
+            basket.add(Integer.parseInt(line.substring(0, separator).trim()), qty);
+        }
+        return basket;
+    }
+
+    private static String queryParameter(URI uri, String name) {
+        String query = uri.getRawQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                if (pair.startsWith(name + "=")) {
+                    return pair.substring(name.length() + 1);
+                }
+            }
+        }
+        throw new IllegalArgumentException("missing query parameter " + name);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Stops accepting requests, gives the ones in flight a second to finish and stops the executor.
+     * If interrupted while waiting, stops the executor at once and keeps the interrupt status set.
+     */
+    @Override
+    public void close() {
+        http.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
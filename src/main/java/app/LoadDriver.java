@@ -0,0 +1,114 @@
+package app;
+
+import metrics.HistogramSnapshot;
+import metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Simulates cashiers ringing up random baskets against a {@link CheckoutServer} as fast as it
+ * answers, each cashier on its own (virtual, where available) thread, and reports throughput,
+ * status codes and round-trip latency percentiles. Running it with more and more cashiers shows
+ * where throughput stops growing and latency starts to climb.
+ */
+final class LoadDriver {
+    private static final int FAILED = -1;
+
+    private final URI checkoutUri;
+    private final int cashiers;
+    private final int catalogSize;
+    private final int basketSize;
+    private final Duration duration;
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final Map<Integer, LongAdder> statusCounts = new ConcurrentHashMap<>();
+
+    /**
+     * @param catalogSize must match the server's, so that baskets only name products it stocks
+     */
+    LoadDriver(URI serverUri, int cashiers, int catalogSize, int basketSize, Duration duration) {
+        this.checkoutUri = serverUri.resolve("/checkout");
+        this.cashiers = cashiers;
+        this.catalogSize = catalogSize;
+        this.basketSize = Math.min(basketSize, catalogSize);
+        this.duration = duration;
+    }
+
+    String run() throws InterruptedException {
+        ExecutorService tills = Threads.perTaskExecutor("cashier", cashiers);
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+        for (int cashier = 1; cashier <= cashiers; cashier++) {
+            int cashierId = cashier;
+            tills.execute(() -> ringUp(cashierId, deadline));
+        }
+        tills.shutdown();
+        tills.awaitTermination(duration.toMillis() + 30_000, TimeUnit.MILLISECONDS);
+        return report(System.nanoTime() - start);
+    }
+
+    private void ringUp(int cashierId, long deadline) {
+        SplittableRandom random = new SplittableRandom(cashierId);
+        URI uri = URI.create(checkoutUri + "?cashier=" + cashierId);
+        while (System.nanoTime() < deadline) {
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .POST(HttpRequest.BodyPublishers.ofString(randomBasket(random)))
+                    .build();
+            long sent = System.nanoTime();
+            int status;
+            try {
+                status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (IOException e) {
+                status = FAILED;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            latencies.record(System.nanoTime() - sent);
+            statusCounts.computeIfAbsent(status, code -> new LongAdder()).increment();
+        }
+    }
+
+    private String randomBasket(SplittableRandom random) {
+        StringBuilder basket = new StringBuilder();
+        int firstId = random.nextInt(catalogSize);
+        // Consecutive ids from a random start keep the products in one basket distinct.
+        for (int line = 0; line < basketSize; line++) {
+            if (line > 0) {
+                basket.append(',');
+            }
+            basket.append((firstId + line) % catalogSize + 1).append(':').append(1 + random.nextInt(3));
+        }
+        return basket.toString();
+    }
+
+    private String report(long elapsedNanos) {
+        HistogramSnapshot snapshot = latencies.snapshot();
+        Map<String, Long> statuses = new TreeMap<>();
+        statusCounts.forEach((status, count) -> statuses.put(status == FAILED ? "failed" : status.toString(), count.sum()));
+        double seconds = elapsedNanos / 1e9;
+        return String.format("cashiers=%d threads=%s elapsed=%.1fs requests=%d throughput=%.0f/s%n"
+                        + "statuses=%s%n"
+                        + "latency p50=%.2fms p90=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms%n",
+                cashiers, Threads.virtualThreadsAvailable() ? "virtual" : "platform", seconds,
+                snapshot.getCount(), snapshot.getCount() / seconds, statuses,
+                snapshot.valueAtPercentile(50) / 1e6, snapshot.valueAtPercentile(90) / 1e6,
+                snapshot.valueAtPercentile(99) / 1e6, snapshot.valueAtPercentile(99.9) / 1e6,
+                snapshot.getMaxNanos() / 1e6);
+    }
+}
@@ -1,8 +1,190 @@
 package app;
 
+import metrics.CheckoutMetrics;
+import model.Store;
+import model.StoreCheckpointer;
+import persistence.AsyncReceiptPersister;
+import persistence.ReceiptHistory;
+import persistence.ReceiptJournal;
+import persistence.ReceiptSequence;
+import persistence.StateLog;
+import report.ReportEngine;
+import report.SalesReport;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 public class Main {
-    public static void main(String[] args) {
-        System.out.println("Оборот\n");
-        System.out.println("Печалба\n");
+    private static final String USAGE = String.join("\n",
+            "Usage:",
+            "  serve [--port 8080] [--catalog 10000] [--cashiers 64] [--journal receipts-journal]",
+            "      Runs a store with a generated catalog behind an HTTP checkout server until killed.",
+            "  load [--url http://localhost:8080] [--cashiers 64] [--catalog 10000] [--basket 5] [--seconds 30]",
+            "      Drives a checkout server with simulated cashiers and prints throughput and latency.",
+            "      Without --url, starts a server on a free local port and a temporary journal first.",
+            "  report [--journal receipts-journal] [--by cashier|product|day]",
+            "      Streams every journaled receipt through a parallel report and prints the totals.");
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println(USAGE);
+            return;
+        }
+        Map<String, String> options = parseOptions(args);
+        switch (args[0]) {
+            case "serve":
+                serve(options);
+                break;
+            case "load":
+                load(options);
+                break;
+            case "report":
+                report(options);
+                break;
+            default:
+                System.err.println(USAGE);
+                System.exit(2);
+        }
+    }
+
+    private static void serve(Map<String, String> options) throws IOException {
+        int port = intOption(options, "port", 8080);
+        Node node = Node.start(Path.of(options.getOrDefault("journal", "receipts-journal")),
+                intOption(options, "catalog", 10_000), intOption(options, "cashiers", 64), port);
+        Runtime.getRuntime().addShutdownHook(new Thread(node::closeQuietly, "checkout-shutdown"));
+        System.out.println("Checkout server listening on http://localhost:" + node.server.getAddress().getPort()
+                + " (" + (Threads.virtualThreadsAvailable() ? "virtual" : "platform") + " threads)");
+    }
+
+    private static void load(Map<String, String> options) throws Exception {
+        int cashiers = intOption(options, "cashiers", 64);
+        int catalogSize = intOption(options, "catalog", 10_000);
+        Duration duration = Duration.ofSeconds(intOption(options, "seconds", 30));
+        int basketSize = intOption(options, "basket", 5);
+
+        String url = options.get("url");
+        if (url != null) {
+            System.out.print(new LoadDriver(URI.create(url), cashiers, catalogSize, basketSize, duration).run());
+            return;
+        }
+        Path journal = Files.createTempDirectory("checkout-load");
+        Node node = Node.start(journal, catalogSize, cashiers, 0);
+        try {
+            URI uri = URI.create("http://localhost:" + node.server.getAddress().getPort());
+            System.out.print(new LoadDriver(uri, cashiers, catalogSize, basketSize, duration).run());
+            System.out.print(node.metrics.snapshot());
+        } finally {
+            node.closeQuietly();
+        }
+        System.out.println("Receipts were journaled to " + journal);
+    }
+
+    private static void report(Map<String, String> options) throws IOException {
+        ReportEngine engine = new ReportEngine();
+        try (ReceiptJournal journal = ReceiptJournal.open(Path.of(options.getOrDefault("journal", "receipts-journal")))) {
+            String by = options.getOrDefault("by", "day");
+            switch (by) {
+                case "cashier":
+                    System.out.print(engine.run(journal, SalesReport.perCashier()));
+                    break;
+                case "product":
+                    System.out.print(engine.run(journal, SalesReport.perProduct()));
+                    break;
+                case "day":
+                    System.out.print(engine.run(journal, SalesReport.perDay()));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown report '" + by + "'\n" + USAGE);
+            }
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Expected --name value but got '" + args[i] + "'\n" + USAGE);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    /**
+     * A store wired for sustained load: receipts are journaled by a background writer, numbered
+     * from a sequence that survives restarts and kept in a bounded history. Store state is
+     * logged and checkpointed every minute, so a restart on the same journal directory recovers
+     * the catalog, stock and totals instead of generating a new catalog.
+     */
+    private static final class Node {
+        final CheckoutMetrics metrics = new CheckoutMetrics();
+        AsyncReceiptPersister persister;
+        ReceiptSequence sequence;
+        StateLog stateLog;
+        StoreCheckpointer checkpointer;
+        CheckoutServer server;
+
+        static Node start(Path journalDir, int catalogSize, int cashiers, int port) throws IOException {
+            Node node = new Node();
+            try {
+                ReceiptJournal journal = ReceiptJournal.open(journalDir, ReceiptJournal.DEFAULT_SEGMENT_BYTES, node.metrics);
+                node.persister = new AsyncReceiptPersister(journal, 8192, 512);
+                node.sequence = ReceiptSequence.open(journalDir.resolve("receipt.seq"));
+                Store store = new Store(0.15, 3, node.persister, Clock.systemDefaultZone(), node.sequence,
+                        new ReceiptHistory(10_000, journal, 1_000));
+                store.setMetrics(node.metrics);
+                node.stateLog = StateLog.open(journalDir.resolve("state"));
+                store.recover(node.stateLog);
+                if (store.getStoreInventory().isEmpty()) {
+                    CatalogGenerator.populate(store, catalogSize, cashiers);
+                }
+                node.checkpointer = new StoreCheckpointer(store, 1, TimeUnit.MINUTES);
+
+                node.server = new CheckoutServer(store, node.metrics,
+                        new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+                node.server.start();
+            } catch (IOException | RuntimeException e) {
+                node.closeQuietly();
+                throw e;
+            }
+            return node;
+        }
+
+        /**
+         * Closes every resource even if an earlier one fails, so that queued receipts are still
+         * flushed and the logs closed when the checkpointer or server cannot shut down.
+         */
+        void closeQuietly() {
+            closeQuietly("server", server);
+            closeQuietly("checkpointer", checkpointer);
+            closeQuietly("receipt persister", persister);
+            closeQuietly("state log", stateLog);
+            closeQuietly("receipt sequence", sequence);
+        }
+
+        private static void closeQuietly(String name, AutoCloseable resource) {
+            if (resource == null) {
+                return;
+            }
+            try {
+                resource.close();
+            } catch (Exception e) {
+                System.err.println("Could not close the " + name + " cleanly: " + e);
+            }
+        }
     }
 }
@@ -0,0 +1,43 @@
+package app;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Picks the executor that runs one task per request or per simulated cashier.
+ */
+final class Threads {
+    private Threads() {
+    }
+
+    /**
+     * @return an executor starting a virtual thread per task when the running JDK has them
+     * (looked up reflectively, since the build targets Java 17), otherwise a pool of
+     * {@code fallbackThreads} daemon platform threads named after {@code name}
+     */
+    static ExecutorService perTaskExecutor(String name, int fallbackThreads) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // No virtual threads here (or only as a preview feature that is switched off).
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(fallbackThreads, task -> {
+                Thread thread = new Thread(task, name + "-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    static boolean virtualThreadsAvailable() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
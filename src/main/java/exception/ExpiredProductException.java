@@ -1,7 +1,34 @@
 package exception;
 
 public class ExpiredProductException extends Exception {
+    private static final String MESSAGE = "The product has expired.";
+
+    private final int productId;
+
     public ExpiredProductException() {
-        super("The product has expired.");
+        this(-1);
     }
-}
\ No newline at end of file
+
+    public ExpiredProductException(int productId) {
+        super(MESSAGE);
+        this.productId = productId;
+    }
+
+    private ExpiredProductException(int productId, boolean writableStackTrace) {
+        super(MESSAGE, null, false, writableStackTrace);
+        this.productId = productId;
+    }
+
+    /**
+     * @return an exception without a stack trace, for rejections that are an expected outcome
+     * rather than a bug
+     */
+    public static ExpiredProductException stackless(int productId) {
+        return new ExpiredProductException(productId, false);
+    }
+
+    /**
+     * @return the id of the product that is expired or not in the catalog, or -1 if not known
+     */
+    public int getProductId() { return productId; }
+}
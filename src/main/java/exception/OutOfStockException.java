@@ -1,9 +1,48 @@
 package exception;
 
 public class OutOfStockException extends Exception {
+    private final int productId;
+    private final String productName;
+    private final int available;
 
     public OutOfStockException(String productName, int available) {
-        super(String.format("Not enough quantity of \"%s\". We have only %d available.",
-                productName, available));
+        this(-1, productName, available);
+    }
+
+    public OutOfStockException(int productId, String productName, int available) {
+        super();
+        this.productId = productId;
+        this.productName = productName;
+        this.available = available;
+    }
+
+    private OutOfStockException(int productId, String productName, int available, boolean writableStackTrace) {
+        super(null, null, false, writableStackTrace);
+        this.productId = productId;
+        this.productName = productName;
+        this.available = available;
+    }
+
+    /**
+     * @return an exception without a stack trace, for rejections that are an expected outcome
+     * rather than a bug; costs one small allocation and no stack walk
+     */
+    public static OutOfStockException stackless(int productId, String productName, int available) {
+        return new OutOfStockException(productId, productName, available, false);
+    }
+
+    /**
+     * @return the id of the product that ran short, or -1 if not known
+     */
+    public int getProductId() { return productId; }
+    public String getProductName() { return productName; }
+    public int getAvailable() { return available; }
+
+    /**
+     * Formatted on each call rather than up front, since most rejections are never printed.
+     */
+    @Override
+    public String getMessage() {
+        return "Not enough quantity of \"" + productName + "\". We have only " + available + " available.";
     }
 }
@@ -0,0 +1,104 @@
+package metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms and counters for checkout and receipt persistence. Recording is lock-free.
+ * <p>
+ * A store records its phases once given an instance through {@code Store.setMetrics}; the
+ * {@code saveToFile} and {@code serialize} phases and written bytes are recorded by the
+ * {@code FileReceiptSink} or {@code ReceiptJournal} that was given the same instance. The
+ * {@link #disabled()} instance records nothing: callers check {@link #isEnabled()} before
+ * reading the clock, so a disabled store pays a single predictable branch per phase.
+ */
+public class CheckoutMetrics {
+    public enum Phase {
+        /** The whole {@code processTransaction} call, including persistence. */
+        CHECKOUT,
+        LOOKUP,
+        PRICING,
+        RECEIPT_CONSTRUCTION,
+        SAVE_TO_FILE,
+        SERIALIZE
+    }
+
+    private static final CheckoutMetrics DISABLED = new CheckoutMetrics(false);
+
+    private final boolean enabled;
+    private final Map<Phase, LatencyHistogram> latencies = new EnumMap<>(Phase.class);
+    private final LongAdder receipts = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final ConcurrentHashMap<String, LongAdder> rejections = new ConcurrentHashMap<>();
+
+    public CheckoutMetrics() {
+        this(true);
+    }
+
+    private CheckoutMetrics(boolean enabled) {
+        this.enabled = enabled;
+        for (Phase phase : Phase.values()) {
+            latencies.put(phase, new LatencyHistogram());
+        }
+    }
+
+    public static CheckoutMetrics disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return a start timestamp for {@link #recordSince}, or 0 when disabled
+     */
+    public long startTimer() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public void recordSince(Phase phase, long startNanos) {
+        if (enabled) {
+            latencies.get(phase).record(System.nanoTime() - startNanos);
+        }
+    }
+
+    public void recordReceipt() {
+        if (enabled) {
+            receipts.increment();
+        }
+    }
+
+    public void recordRejection(Throwable cause) {
+        recordRejection(cause.getClass());
+    }
+
+    /**
+     * Counts a rejection under the simple name of {@code type}, without needing an instance of it.
+     */
+    public void recordRejection(Class<? extends Throwable> type) {
+        if (enabled) {
+            rejections.computeIfAbsent(type.getSimpleName(), name -> new LongAdder()).increment();
+        }
+    }
+
+    public void recordBytesWritten(long bytes) {
+        if (enabled) {
+            bytesWritten.add(bytes);
+        }
+    }
+
+    public MetricsSnapshot snapshot() {
+        Map<Phase, HistogramSnapshot> phaseSnapshots = new EnumMap<>(Phase.class);
+        for (Map.Entry<Phase, LatencyHistogram> entry : latencies.entrySet()) {
+            phaseSnapshots.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        Map<String, Long> rejectionCounts = new TreeMap<>();
+        rejections.forEach((type, count) -> rejectionCounts.put(type, count.sum()));
+        return new MetricsSnapshot(System.currentTimeMillis(), phaseSnapshots, receipts.sum(),
+                rejectionCounts, bytesWritten.sum());
+    }
+}
@@ -0,0 +1,51 @@
+package metrics;
+
+/**
+ * Point-in-time copy of a {@link LatencyHistogram}. Percentiles are reported as the upper bound
+ * of the bucket they fall into, capped at the largest recorded value.
+ */
+public class HistogramSnapshot {
+    private final long[] counts;
+    private final long count;
+    private final long max;
+    private final double mean;
+
+    HistogramSnapshot(long[] counts, long sum, long max) {
+        this.counts = counts;
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+        this.count = total;
+        this.max = max;
+        this.mean = total == 0 ? 0 : (double) sum / total;
+    }
+
+    public long getCount() { return count; }
+
+    public long getMaxNanos() { return max; }
+
+    public double getMeanNanos() { return mean; }
+
+    public long valueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.highestValueIn(i), max);
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.0fns p50=%dns p90=%dns p99=%dns p99.9=%dns max=%dns",
+                count, mean, valueAtPercentile(50), valueAtPercentile(90), valueAtPercentile(99),
+                valueAtPercentile(99.9), max);
+    }
+}
@@ -0,0 +1,73 @@
+package metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Periodically replaces a local file with the latest {@link MetricsSnapshot}. The file is
+ * written next to its final name and moved into place, so readers never see half a report.
+ * A scheduled dump that fails is counted in {@link #getFailureCount()}.
+ */
+public class MetricsDumper implements AutoCloseable {
+    private final CheckoutMetrics metrics;
+    private final Path target;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong failures = new AtomicLong();
+    private volatile IOException lastFailure;
+
+    public MetricsDumper(CheckoutMetrics metrics, Path target, long period, TimeUnit unit) {
+        this.metrics = metrics;
+        this.target = target;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dumper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::dumpQuietly, period, period, unit);
+    }
+
+    public void dump() throws IOException {
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.writeString(temporary, metrics.snapshot().toString(), StandardCharsets.UTF_8);
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void dumpQuietly() {
+        try {
+            dump();
+        } catch (IOException e) {
+            lastFailure = e;
+            failures.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return how many scheduled dumps have failed so far
+     */
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * @return why the most recent failed scheduled dump failed, or null if none has
+     */
+    public IOException getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Stops the schedule and writes one final snapshot.
+     */
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdownNow();
+        dump();
+    }
+}
@@ -0,0 +1,53 @@
+package metrics;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Immutable copy of everything a {@link CheckoutMetrics} has recorded up to one moment.
+ */
+public class MetricsSnapshot {
+    private final long takenAtMillis;
+    private final Map<CheckoutMetrics.Phase, HistogramSnapshot> latencies;
+    private final long receiptCount;
+    private final Map<String, Long> rejectionsByType;
+    private final long bytesWritten;
+
+    MetricsSnapshot(long takenAtMillis, Map<CheckoutMetrics.Phase, HistogramSnapshot> latencies, long receiptCount,
+                    Map<String, Long> rejectionsByType, long bytesWritten) {
+        this.takenAtMillis = takenAtMillis;
+        this.latencies = Collections.unmodifiableMap(latencies);
+        this.receiptCount = receiptCount;
+        this.rejectionsByType = Collections.unmodifiableMap(rejectionsByType);
+        this.bytesWritten = bytesWritten;
+    }
+
+    public HistogramSnapshot getLatency(CheckoutMetrics.Phase phase) {
+        return latencies.get(phase);
+    }
+
+    public long getReceiptCount() { return receiptCount; }
+
+    /**
+     * @return rejected baskets keyed by the simple name of the exception that rejected them
+     */
+    public Map<String, Long> getRejectionsByType() { return rejectionsByType; }
+
+    public long getBytesWritten() { return bytesWritten; }
+
+    public long getTakenAtMillis() { return takenAtMillis; }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("======= Checkout metrics ").append(Instant.ofEpochMilli(takenAtMillis)).append(" =======\n");
+        sb.append("Receipts - ").append(receiptCount).append("\n");
+        sb.append("Bytes written - ").append(bytesWritten).append("\n");
+        sb.append("Rejected baskets - ").append(rejectionsByType).append("\n");
+        for (Map.Entry<CheckoutMetrics.Phase, HistogramSnapshot> entry : latencies.entrySet()) {
+            sb.append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,121 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * The quantity wanted per product id, held in two parallel {@code int} arrays so a till can
+ * ring up baskets without boxing. A till keeps one and {@link #clear() clears} it after each
+ * checkout; the arrays only grow, so once warmed up a basket allocates nothing. Not thread-safe.
+ */
+public final class Basket {
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private int[] productIds;
+    private int[] quantities;
+    private int size;
+
+    public Basket() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public Basket(int capacity) {
+        productIds = new int[Math.max(1, capacity)];
+        quantities = new int[productIds.length];
+    }
+
+    /**
+     * @return a basket with the lines of {@code orderDetails}, in its iteration order
+     * @throws IllegalArgumentException if a quantity is not positive
+     */
+    public static Basket of(Map<Integer, Integer> orderDetails) {
+        Basket basket = new Basket(orderDetails.size());
+        for (Map.Entry<Integer, Integer> orderEntry : orderDetails.entrySet()) {
+            checkQuantity(orderEntry.getKey(), orderEntry.getValue());
+            basket.append(orderEntry.getKey(), orderEntry.getValue());
+        }
+        return basket;
+    }
+
+    /**
+     * Adds {@code qty} of a product, to its existing line if the basket already has one.
+     *
+     * @throws IllegalArgumentException if {@code qty} is not positive, or the line would hold
+     *                                  more than {@link Integer#MAX_VALUE}
+     */
+    public Basket add(int productId, int qty) {
+        checkQuantity(productId, qty);
+        for (int i = 0; i < size; i++) {
+            if (productIds[i] == productId) {
+                if (quantities[i] > Integer.MAX_VALUE - qty) {
+                    throw new IllegalArgumentException("Quantity of product " + productId + " overflows its basket line.");
+                }
+                quantities[i] += qty;
+                return this;
+            }
+        }
+        append(productId, qty);
+        return this;
+    }
+
+    private static void checkQuantity(int productId, int qty) {
+        if (qty <= 0) {
+            throw new IllegalArgumentException("Quantity of product " + productId + " must be positive, not " + qty + ".");
+        }
+    }
+
+    private void append(int productId, int qty) {
+        if (size == productIds.length) {
+            productIds = Arrays.copyOf(productIds, size * 2);
+            quantities = Arrays.copyOf(quantities, size * 2);
+        }
+        productIds[size] = productId;
+        quantities[size] = qty;
+        size++;
+    }
+
+    /**
+     * Empties the basket for the next customer, keeping its capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return the number of lines, one per distinct product
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getProductId(int line) {
+        return productIds[checkLine(line)];
+    }
+
+    public int getQuantity(int line) {
+        return quantities[checkLine(line)];
+    }
+
+    private int checkLine(int line) {
+        if (line >= size) {
+            throw new IndexOutOfBoundsException("line " + line + " of a basket with " + size);
+        }
+        return line;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("{");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                text.append(", ");
+            }
+            text.append(productIds[i]).append('=').append(quantities[i]);
+        }
+        return text.append('}').toString();
+    }
+}
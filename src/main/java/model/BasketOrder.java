@@ -0,0 +1,23 @@
+package model;
+
+import java.util.Map;
+
+/**
+ * One basket in a {@link Store#processBatch} call: who rang it up and the quantity wanted per product id.
+ */
+public class BasketOrder {
+    private final Cashier cashier;
+    private final Basket basket;
+
+    public BasketOrder(Cashier cashier, Basket basket) {
+        this.cashier = cashier;
+        this.basket = basket;
+    }
+
+    public BasketOrder(Cashier cashier, Map<Integer, Integer> basket) {
+        this(cashier, Basket.of(basket));
+    }
+
+    public Cashier getCashier() { return cashier; }
+    public Basket getBasket() { return basket; }
+}
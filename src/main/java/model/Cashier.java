@@ -1,20 +1,48 @@
 package model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
 public class Cashier implements Serializable {
-    private final int id;
-    private final String name;
-    private final double salary;
+    // Pinned to the UID of the original class, whose salary was a double; see readObject.
+    private static final long serialVersionUID = 1435223925524363580L;
+
+    // Not final so that readObject can set them.
+    private int id;
+    private String name;
+    private long salaryCents;
 
     public Cashier(int id, String name, double salary) {
+        this(id, name, Money.toMinor(salary));
+    }
+
+    private Cashier(int id, String name, long salaryCents) {
         this.id = id;
         this.name = name;
-        this.salary = salary;
+        this.salaryCents = salaryCents;
+    }
+
+    public static Cashier ofCents(int id, String name, long salaryCents) {
+        return new Cashier(id, name, salaryCents);
+    }
+
+    /**
+     * Reads both forms: {@code salaryCents}, or {@code salary} in major units as written before
+     * money was kept in minor units.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        id = fields.get("id", 0);
+        name = (String) fields.get("name", null);
+        salaryCents = fields.defaulted("salaryCents")
+                ? Money.toMinor(fields.get("salary", 0.0))
+                : fields.get("salaryCents", 0L);
     }
 
     public int getId() { return id; }
-    public double getSalary() { return salary; }
+    public double getSalary() { return Money.toMajor(salaryCents); }
+    public long getSalaryCents() { return salaryCents; }
     public String getName() { return name; }
 
     @Override
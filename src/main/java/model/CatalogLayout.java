@@ -0,0 +1,18 @@
+package model;
+
+/**
+ * How a {@link Store} keeps the stock figures behind its delivery cost, expiry and low-stock
+ * queries.
+ */
+public enum CatalogLayout {
+    /**
+     * Sorted indexes by expiry date and quantity plus a running delivery cost. Queries cost
+     * O(log n + k); every sale pays for moving the product between quantity buckets.
+     */
+    INDEXED,
+    /**
+     * Parallel primitive arrays of delivery prices, expiry days and quantities. A sale is a
+     * single array store; every query is a sequential scan of the whole catalog.
+     */
+    COLUMNAR
+}
@@ -0,0 +1,83 @@
+package model;
+
+import exception.ExpiredProductException;
+import exception.OutOfStockException;
+
+/**
+ * Outcome of selling one basket through {@link Store#checkout} or {@link Store#processBatch}:
+ * either its receipt, or a {@link RejectionCode} with the product that caused it. A rejection
+ * is only turned into an exception if {@link #getRejection()} is called, so tills that act on
+ * the code alone reject baskets without building one.
+ */
+public class CheckoutResult {
+    private final Receipt receipt;
+    private final RejectionCode rejectionCode;
+    private final int productId;
+    private final Product product;
+    private final int available;
+    private Exception rejection;
+
+    private CheckoutResult(Receipt receipt, RejectionCode rejectionCode, int productId, Product product,
+                           int available, Exception rejection) {
+        this.receipt = receipt;
+        this.rejectionCode = rejectionCode;
+        this.productId = productId;
+        this.product = product;
+        this.available = available;
+        this.rejection = rejection;
+    }
+
+    static CheckoutResult accepted(Receipt receipt) {
+        return new CheckoutResult(receipt, null, -1, null, 0, null);
+    }
+
+    /**
+     * @param product the product, or {@code null} for {@link RejectionCode#UNKNOWN_PRODUCT}
+     */
+    static CheckoutResult rejected(RejectionCode rejectionCode, int productId, Product product, int available) {
+        return new CheckoutResult(null, rejectionCode, productId, product, available, null);
+    }
+
+    /**
+     * For the rare rejections that already come as an exception.
+     */
+    static CheckoutResult rejected(RejectionCode rejectionCode, Exception rejection) {
+        return new CheckoutResult(null, rejectionCode, -1, null, 0, rejection);
+    }
+
+    public boolean isAccepted() { return receipt != null; }
+
+    /**
+     * @return the receipt, or {@code null} if the basket was rejected
+     */
+    public Receipt getReceipt() { return receipt; }
+
+    /**
+     * @return why the basket was rejected, or {@code null} if it was accepted
+     */
+    public RejectionCode getRejectionCode() { return rejectionCode; }
+
+    /**
+     * @return the id of the product that caused an {@link RejectionCode#OUT_OF_STOCK},
+     * {@link RejectionCode#EXPIRED} or {@link RejectionCode#UNKNOWN_PRODUCT} rejection, else -1
+     */
+    public int getProductId() { return productId; }
+
+    /**
+     * @return the stock left of the product for an {@link RejectionCode#OUT_OF_STOCK} rejection, else 0
+     */
+    public int getAvailable() { return available; }
+
+    /**
+     * @return the exception {@link Store#processTransaction} would have thrown for this basket,
+     * created without a stack trace on first call, or {@code null} if it was accepted
+     */
+    public Exception getRejection() {
+        if (rejection == null && rejectionCode != null) {
+            rejection = rejectionCode == RejectionCode.OUT_OF_STOCK
+                    ? OutOfStockException.stackless(productId, product.getName(), available)
+                    : ExpiredProductException.stackless(productId);
+        }
+        return rejection;
+    }
+}
@@ -0,0 +1,134 @@
+package model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link CatalogLayout#COLUMNAR}: the delivery price, expiry day and quantity of every product
+ * in parallel primitive arrays indexed by catalog position, so catalog-wide questions are tight
+ * loops over contiguous memory that the JIT can unroll and vectorize, with no pointer chasing
+ * and no {@link LocalDate} per product.
+ * <p>
+ * Columns are split into fixed pages that never move once allocated, so a quantity written by
+ * a till is never lost to a concurrent grow. Quantities are written with release semantics and
+ * scans start with an acquire fence; a product changing while a scan runs may be seen before or
+ * after the change. Results are in catalog order.
+ */
+final class ColumnarInventory implements InventoryTracker {
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final VarHandle QUANTITY = MethodHandles.arrayElementVarHandle(int[].class);
+
+    // The page array is replaced before size is raised, so a reader that reads size first
+    // always gets pages covering it.
+    private volatile Page[] pages = new Page[0];
+    private volatile int size;
+
+    @Override
+    public void stocked(Product product) {
+        int position = product.getCatalogPosition();
+        Page[] current = pages;
+        int pageIndex = position >>> PAGE_BITS;
+        if (pageIndex == current.length) {
+            current = Arrays.copyOf(current, pageIndex + 1);
+            current[pageIndex] = new Page();
+            pages = current;
+        }
+        Page page = current[pageIndex];
+        int slot = position & PAGE_MASK;
+        page.products[slot] = product;
+        page.deliveryPrices[slot] = product.deliveryPriceCents;
+        page.expiryDays[slot] = product.getExpiryDate().toEpochDay();
+        QUANTITY.setRelease(page.quantities, slot, product.getQty());
+        size = position + 1;
+    }
+
+    @Override
+    public void onQuantityChanged(Product product, int previousQty, int newQty) {
+        int position = product.getCatalogPosition();
+        QUANTITY.setRelease(pages[position >>> PAGE_BITS].quantities, position & PAGE_MASK, newQty);
+    }
+
+    @Override
+    public long deliveryCosts() {
+        int count = size;
+        Page[] current = pages;
+        VarHandle.acquireFence();
+        long total = 0;
+        for (int pageIndex = 0; pageIndex << PAGE_BITS < count; pageIndex++) {
+            Page page = current[pageIndex];
+            long[] prices = page.deliveryPrices;
+            int[] quantities = page.quantities;
+            int limit = Math.min(PAGE_SIZE, count - (pageIndex << PAGE_BITS));
+            for (int i = 0; i < limit; i++) {
+                total += prices[i] * quantities[i];
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public List<Product> expiredBefore(LocalDate date) {
+        return inStockExpiringIn(Long.MIN_VALUE, date.toEpochDay());
+    }
+
+    @Override
+    public List<Product> expiringBetween(LocalDate from, LocalDate to) {
+        return inStockExpiringIn(from.toEpochDay(), to.toEpochDay());
+    }
+
+    @Override
+    public List<Product> atMost(int maxQty) {
+        int count = size;
+        Page[] current = pages;
+        VarHandle.acquireFence();
+        List<Product> result = new ArrayList<>();
+        for (int pageIndex = 0; pageIndex << PAGE_BITS < count; pageIndex++) {
+            Page page = current[pageIndex];
+            int[] quantities = page.quantities;
+            int limit = Math.min(PAGE_SIZE, count - (pageIndex << PAGE_BITS));
+            for (int i = 0; i < limit; i++) {
+                if (quantities[i] <= maxQty) {
+                    result.add(page.products[i]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return products in stock whose expiry epoch day is in {@code [fromDay, toDay)}
+     */
+    private List<Product> inStockExpiringIn(long fromDay, long toDay) {
+        int count = size;
+        Page[] current = pages;
+        VarHandle.acquireFence();
+        List<Product> result = new ArrayList<>();
+        for (int pageIndex = 0; pageIndex << PAGE_BITS < count; pageIndex++) {
+            Page page = current[pageIndex];
+            long[] days = page.expiryDays;
+            int[] quantities = page.quantities;
+            int limit = Math.min(PAGE_SIZE, count - (pageIndex << PAGE_BITS));
+            for (int i = 0; i < limit; i++) {
+                long day = days[i];
+                if (day >= fromDay && day < toDay && quantities[i] > 0) {
+                    result.add(page.products[i]);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static final class Page {
+        final Product[] products = new Product[PAGE_SIZE];
+        final long[] deliveryPrices = new long[PAGE_SIZE];
+        // Epoch days of LocalDate.MIN and MAX do not fit in an int.
+        final long[] expiryDays = new long[PAGE_SIZE];
+        final int[] quantities = new int[PAGE_SIZE];
+    }
+}
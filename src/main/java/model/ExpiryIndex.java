@@ -0,0 +1,60 @@
+package model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Products that are still on the shelf, bucketed by expiry date, so that "expired by" and
+ * "expiring within" questions are range lookups costing O(log n + k) instead of catalog scans.
+ * Safe for concurrent use; a product being added or removed while a query runs may or may not
+ * be included in its result.
+ */
+final class ExpiryIndex {
+    private final ConcurrentSkipListMap<LocalDate, Set<Product>> productsByExpiry = new ConcurrentSkipListMap<>();
+
+    void add(Product product) {
+        productsByExpiry.computeIfAbsent(product.getExpiryDate(), date -> ConcurrentHashMap.newKeySet())
+                .add(product);
+    }
+
+    /**
+     * Removes {@code product}. Its date bucket is kept even when it becomes empty, which costs
+     * at most one entry per distinct date and avoids racing with a concurrent {@link #add}.
+     */
+    void remove(Product product) {
+        Set<Product> bucket = productsByExpiry.get(product.getExpiryDate());
+        if (bucket != null) {
+            bucket.remove(product);
+        }
+    }
+
+    /**
+     * @return products whose expiry date is strictly before {@code date}, earliest first
+     */
+    List<Product> expiredBefore(LocalDate date) {
+        return collect(productsByExpiry.headMap(date, false));
+    }
+
+    /**
+     * @return products expiring on {@code from} or later but strictly before {@code to}, earliest first
+     */
+    List<Product> expiringBetween(LocalDate from, LocalDate to) {
+        if (!from.isBefore(to)) {
+            return new ArrayList<>();
+        }
+        return collect(productsByExpiry.subMap(from, true, to, false));
+    }
+
+    private static List<Product> collect(Map<LocalDate, Set<Product>> range) {
+        List<Product> result = new ArrayList<>();
+        for (Set<Product> bucket : range.values()) {
+            result.addAll(bucket);
+        }
+        return result;
+    }
+}
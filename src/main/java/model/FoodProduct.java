@@ -3,18 +3,27 @@ package model;
 import java.time.LocalDate;
 
 public class FoodProduct extends Product {
-    private static final double PROFIT_MARGIN_FACTOR = 0.30;
+    private static final long serialVersionUID = 1362228798396962536L;
+    private static final int PROFIT_MARGIN_BASIS_POINTS = 3_000;
 
     public FoodProduct(int id, String name, double deliveryPrice, LocalDate expiryDate, int qty) {
         super(id, name, deliveryPrice, expiryDate, qty);
     }
 
+    private FoodProduct(int id, String name, LocalDate expiryDate, int qty, long deliveryPriceCents) {
+        super(id, name, expiryDate, qty, deliveryPriceCents);
+    }
+
+    public static FoodProduct ofCents(int id, String name, long deliveryPriceCents, LocalDate expiryDate, int qty) {
+        return new FoodProduct(id, name, expiryDate, qty, deliveryPriceCents);
+    }
+
     @Override
-    public double getPriceOnSale(LocalDate today, int daysBeforeExpiry, double reductionRate) {
-        double baseAmount = deliveryPrice * (1 + PROFIT_MARGIN_FACTOR);
+    public long getPriceOnSaleCents(LocalDate today, int daysBeforeExpiry, int reductionBasisPoints) {
+        long baseAmount = Money.markUp(deliveryPriceCents, PROFIT_MARGIN_BASIS_POINTS);
 
         if (isCloseToExpire(today, daysBeforeExpiry)) {
-            baseAmount = baseAmount * (1.0 - reductionRate);
+            baseAmount = Money.discount(baseAmount, reductionBasisPoints);
         }
 
         return baseAmount;
@@ -0,0 +1,56 @@
+package model;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link CatalogLayout#INDEXED}: keeps an {@link ExpiryIndex}, a {@link QuantityIndex} and a
+ * running delivery cost current with every stock change.
+ */
+final class IndexedInventory implements InventoryTracker {
+    private final ExpiryIndex expiryIndex = new ExpiryIndex();
+    private final QuantityIndex quantityIndex = new QuantityIndex();
+    private final LongAdder deliveryCosts = new LongAdder();
+
+    @Override
+    public void stocked(Product product) {
+        int qty = product.getQty();
+        if (qty > 0) {
+            expiryIndex.add(product);
+        }
+        quantityIndex.add(product, qty);
+        deliveryCosts.add(product.deliveryPriceCents * qty);
+    }
+
+    @Override
+    public void onQuantityChanged(Product product, int previousQty, int newQty) {
+        deliveryCosts.add(product.deliveryPriceCents * (newQty - previousQty));
+        if (previousQty > 0 && newQty == 0) {
+            expiryIndex.remove(product);
+        } else if (previousQty == 0 && newQty > 0) {
+            expiryIndex.add(product);
+        }
+        quantityIndex.move(product, previousQty, newQty);
+    }
+
+    @Override
+    public long deliveryCosts() {
+        return deliveryCosts.sum();
+    }
+
+    @Override
+    public List<Product> expiredBefore(LocalDate date) {
+        return expiryIndex.expiredBefore(date);
+    }
+
+    @Override
+    public List<Product> expiringBetween(LocalDate from, LocalDate to) {
+        return expiryIndex.expiringBetween(from, to);
+    }
+
+    @Override
+    public List<Product> atMost(int maxQty) {
+        return quantityIndex.atMost(maxQty);
+    }
+}
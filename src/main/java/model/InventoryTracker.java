@@ -0,0 +1,35 @@
+package model;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Follows the stock of every product in a store's catalog and answers the catalog-wide stock
+ * questions. One implementation per {@link CatalogLayout}.
+ */
+interface InventoryTracker extends StockListener {
+    /**
+     * Called once per product, under the catalog lock, after it is given its catalog position.
+     */
+    void stocked(Product product);
+
+    /**
+     * @return the delivery price of everything in stock, in minor units
+     */
+    long deliveryCosts();
+
+    /**
+     * @return products in stock whose expiry date is strictly before {@code date}
+     */
+    List<Product> expiredBefore(LocalDate date);
+
+    /**
+     * @return products in stock expiring on {@code from} or later but strictly before {@code to}
+     */
+    List<Product> expiringBetween(LocalDate from, LocalDate to);
+
+    /**
+     * @return products whose quantity is at most {@code maxQty}
+     */
+    List<Product> atMost(int maxQty);
+}
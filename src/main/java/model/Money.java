@@ -0,0 +1,88 @@
+package model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Amounts of money as a {@code long} count of minor units (stotinki, hundredths of a lev), and
+ * rates as whole basis points (hundredths of a percent). Adding and multiplying by a quantity
+ * are exact, so totals over any number of receipts never drift. Applying a rate is the only
+ * step that rounds: to the nearest minor unit, halves away from zero, once per rate applied.
+ * A sale price is therefore the delivery price with the margin applied and rounded, then, near
+ * expiry, with the discount applied and rounded again, as it would be re-labelled on the shelf.
+ * <p>
+ * {@code double} amounts are converted only where they enter the model, by their decimal value,
+ * so {@code 1.005} is 101 minor units and not 100.
+ */
+public final class Money {
+    public static final int MINOR_UNITS_PER_MAJOR = 100;
+    public static final int BASIS_POINTS_PER_UNIT = 10_000;
+
+    private Money() {
+    }
+
+    /**
+     * @return {@code amount} in minor units, rounded half up
+     */
+    public static long toMinor(double amount) {
+        return BigDecimal.valueOf(amount).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    public static double toMajor(long minorUnits) {
+        return minorUnits / (double) MINOR_UNITS_PER_MAJOR;
+    }
+
+    /**
+     * @return {@code rate} (0.15 for 15%) in basis points, rounded half up
+     */
+    public static int toBasisPoints(double rate) {
+        return BigDecimal.valueOf(rate).movePointRight(4).setScale(0, RoundingMode.HALF_UP).intValueExact();
+    }
+
+    /**
+     * @return {@code amount} times {@code basisPoints} / 10 000, rounded to the nearest minor
+     * unit with halves away from zero
+     */
+    public static long applyRate(long amount, int basisPoints) {
+        long scaled = Math.abs(amount) * basisPoints;
+        long rounded = (scaled + BASIS_POINTS_PER_UNIT / 2) / BASIS_POINTS_PER_UNIT;
+        return amount < 0 ? -rounded : rounded;
+    }
+
+    /**
+     * @return {@code amount} raised by a margin of {@code marginBasisPoints}
+     */
+    public static long markUp(long amount, int marginBasisPoints) {
+        return applyRate(amount, BASIS_POINTS_PER_UNIT + marginBasisPoints);
+    }
+
+    /**
+     * @return {@code amount} lowered by a discount of {@code discountBasisPoints}
+     */
+    public static long discount(long amount, int discountBasisPoints) {
+        return applyRate(amount, BASIS_POINTS_PER_UNIT - discountBasisPoints);
+    }
+
+    /**
+     * @return {@code minorUnits} as major units with two decimals, such as {@code -12.05}
+     */
+    public static String format(long minorUnits) {
+        return appendTo(new StringBuilder(24), minorUnits).toString();
+    }
+
+    /**
+     * Appends {@code minorUnits} as {@link #format} would, without creating a string.
+     */
+    public static StringBuilder appendTo(StringBuilder text, long minorUnits) {
+        long magnitude = Math.abs(minorUnits);
+        if (minorUnits < 0) {
+            text.append('-');
+        }
+        long fraction = magnitude % MINOR_UNITS_PER_MAJOR;
+        text.append(magnitude / MINOR_UNITS_PER_MAJOR).append('.');
+        if (fraction < 10) {
+            text.append('0');
+        }
+        return text.append(fraction);
+    }
+}
@@ -3,17 +3,26 @@ package model;
 import java.time.LocalDate;
 
 public class NonFoodProduct extends Product {
-    private static final double PROFIT_MARGIN_FACTOR = 0.50;
+    private static final long serialVersionUID = -5035685825108368219L;
+    private static final int PROFIT_MARGIN_BASIS_POINTS = 5_000;
 
     public NonFoodProduct(int id, String name, double deliveryPrice, LocalDate expiryDate, int qty) {
         super(id, name, deliveryPrice, expiryDate, qty);
     }
 
+    private NonFoodProduct(int id, String name, LocalDate expiryDate, int qty, long deliveryPriceCents) {
+        super(id, name, expiryDate, qty, deliveryPriceCents);
+    }
+
+    public static NonFoodProduct ofCents(int id, String name, long deliveryPriceCents, LocalDate expiryDate, int qty) {
+        return new NonFoodProduct(id, name, expiryDate, qty, deliveryPriceCents);
+    }
+
     @Override
-    public double getPriceOnSale(LocalDate currentDate, int daysBeforeExpiry, double discountPercent) {
-        double price = deliveryPrice * (1 + PROFIT_MARGIN_FACTOR);
+    public long getPriceOnSaleCents(LocalDate currentDate, int daysBeforeExpiry, int discountBasisPoints) {
+        long price = Money.markUp(deliveryPriceCents, PROFIT_MARGIN_BASIS_POINTS);
         if (isCloseToExpire(currentDate, daysBeforeExpiry)) {
-            price *= (1 - discountPercent);
+            price = Money.discount(price, discountBasisPoints);
         }
         return price;
     }
@@ -0,0 +1,50 @@
+package model;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * Sale prices of the catalog for one business day in minor units, indexed by catalog position.
+ * Expired products are priced {@link #NOT_FOR_SALE}, and slots no product has been priced in yet
+ * hold {@link #UNPRICED}. The store fills the table once per day and appends to it as products
+ * are stocked; checkout only reads it.
+ */
+final class PriceTable {
+    static final long NOT_FOR_SALE = -1;
+    static final long UNPRICED = -2;
+
+    final LocalDate day;
+    final long[] prices;
+    private final long validFromMillis;
+    private final long validUntilMillis;
+
+    PriceTable(LocalDate day, ZoneId zone, int capacity) {
+        this(day, day.atStartOfDay(zone).toInstant().toEpochMilli(),
+                day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli(), unpriced(new long[capacity], 0));
+    }
+
+    private PriceTable(LocalDate day, long validFromMillis, long validUntilMillis, long[] prices) {
+        this.day = day;
+        this.validFromMillis = validFromMillis;
+        this.validUntilMillis = validUntilMillis;
+        this.prices = prices;
+    }
+
+    boolean covers(long epochMillis) {
+        return epochMillis >= validFromMillis && epochMillis < validUntilMillis;
+    }
+
+    /**
+     * @return a copy of this table with room for at least {@code capacity} prices
+     */
+    PriceTable grow(int capacity) {
+        return new PriceTable(day, validFromMillis, validUntilMillis,
+                unpriced(Arrays.copyOf(prices, Math.max(capacity, prices.length << 1)), prices.length));
+    }
+
+    private static long[] unpriced(long[] prices, int from) {
+        Arrays.fill(prices, from, prices.length, UNPRICED);
+        return prices;
+    }
+}
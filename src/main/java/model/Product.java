@@ -1,23 +1,45 @@
 package model;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.time.LocalDate;
 
 public abstract class Product implements Serializable {
+    // Pinned to the UID of the original class, whose delivery price was a double; see readObject.
+    private static final long serialVersionUID = -2776422204449299715L;
+
     protected int id;
     protected String name;
-    protected double deliveryPrice;
+    protected long deliveryPriceCents;
     protected LocalDate expiryDate;
-    protected int qty;
+    protected volatile int qty;
+    private transient volatile StockListener stockListener;
+    private transient int catalogPosition = -1;
+    private transient volatile Watermark[] watermarks;
+    // LSN of the last state log record that set this product's quantity; guarded by its lock stripe.
+    private transient long stateLsn = StoreState.NO_LSN;
 
     public Product(int id, String name, double deliveryPrice, LocalDate expiryDate, int qty) {
+        this(id, name, expiryDate, qty, Money.toMinor(deliveryPrice));
+    }
+
+    protected Product(int id, String name, LocalDate expiryDate, int qty, long deliveryPriceCents) {
         this.id = id;
         this.name = name;
-        this.deliveryPrice = deliveryPrice;
+        this.deliveryPriceCents = deliveryPriceCents;
         this.expiryDate = expiryDate;
         this.qty = qty;
     }
 
-    public abstract double getPriceOnSale(LocalDate currentDate, int thresholdDays, double discountPercent);
+    /**
+     * @param discountBasisPoints the near-expiry discount, 1 500 for 15%
+     * @return the sale price in minor units, rounded as described in {@link Money}
+     */
+    public abstract long getPriceOnSaleCents(LocalDate currentDate, int thresholdDays, int discountBasisPoints);
+
+    public double getPriceOnSale(LocalDate currentDate, int thresholdDays, double discountPercent) {
+        return Money.toMajor(getPriceOnSaleCents(currentDate, thresholdDays, Money.toBasisPoints(discountPercent)));
+    }
 
     public boolean isExpired(LocalDate currentDate) {
         return currentDate.isAfter(expiryDate);
@@ -27,10 +49,31 @@ public abstract class Product implements Serializable {
         return expiryDate.minusDays(thresholdDays).isBefore(currentDate) && !isExpired(currentDate);
     }
 
+    /**
+     * Reads both forms: {@code deliveryPriceCents}, or {@code deliveryPrice} in major units as
+     * written before money was kept in minor units. The product comes back out of any store.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        id = fields.get("id", 0);
+        name = (String) fields.get("name", null);
+        deliveryPriceCents = fields.defaulted("deliveryPriceCents")
+                ? Money.toMinor(fields.get("deliveryPrice", 0.0))
+                : fields.get("deliveryPriceCents", 0L);
+        expiryDate = (LocalDate) fields.get("expiryDate", null);
+        qty = fields.get("qty", 0);
+        catalogPosition = -1;
+        stateLsn = StoreState.NO_LSN;
+    }
+
     public int getId() { return id; }
 
     public String getName() { return name; }
 
+    public double getDeliveryPrice() { return Money.toMajor(deliveryPriceCents); }
+
+    public long getDeliveryPriceCents() { return deliveryPriceCents; }
+
     public LocalDate getExpiryDate() { return expiryDate; }
 
     public int getQty() { return qty; }
@@ -39,6 +82,90 @@ public abstract class Product implements Serializable {
         if (qty < amount) {
             throw new IllegalArgumentException("Insufficient quantity.");
         }
-        qty -= amount;
+        int previousQty = qty;
+        qty = previousQty - amount;
+        quantityChanged(previousQty, qty);
+    }
+
+    void restoreQuantity(int amount) {
+        int previousQty = qty;
+        qty = previousQty + amount;
+        quantityChanged(previousQty, qty);
+    }
+
+    /**
+     * Sets the quantity replayed from a state log record, without firing watermarks.
+     */
+    void recoverQuantity(int recoveredQty, long lsn) {
+        int previousQty = qty;
+        qty = recoveredQty;
+        stateLsn = lsn;
+        StockListener listener = stockListener;
+        if (listener != null) {
+            listener.onQuantityChanged(this, previousQty, recoveredQty);
+        }
+    }
+
+    long getStateLsn() {
+        return stateLsn;
+    }
+
+    void setStateLsn(long lsn) {
+        stateLsn = lsn;
+    }
+
+    /**
+     * Registers {@code listener} to be called whenever a sale takes the quantity from above
+     * {@code threshold} to at or below it.
+     */
+    public synchronized void addWatermark(int threshold, StockWatermarkListener listener) {
+        Watermark[] current = watermarks;
+        int count = current == null ? 0 : current.length;
+        Watermark[] updated = new Watermark[count + 1];
+        if (current != null) {
+            System.arraycopy(current, 0, updated, 0, count);
+        }
+        updated[count] = new Watermark(threshold, listener);
+        watermarks = updated;
+    }
+
+    void placeInCatalog(int position) {
+        if (catalogPosition != -1) {
+            throw new IllegalArgumentException("Product with id " + id + " is already stocked in another store.");
+        }
+        catalogPosition = position;
+    }
+
+    void attachToStore(StockListener listener) {
+        stockListener = listener;
+    }
+
+    int getCatalogPosition() {
+        return catalogPosition;
+    }
+
+    private void quantityChanged(int previousQty, int newQty) {
+        StockListener listener = stockListener;
+        if (listener != null) {
+            listener.onQuantityChanged(this, previousQty, newQty);
+        }
+        Watermark[] marks = watermarks;
+        if (marks != null && newQty < previousQty) {
+            for (Watermark mark : marks) {
+                if (previousQty > mark.threshold && newQty <= mark.threshold) {
+                    mark.listener.onWatermarkCrossed(this, mark.threshold, newQty);
+                }
+            }
+        }
+    }
+
+    private static final class Watermark {
+        final int threshold;
+        final StockWatermarkListener listener;
+
+        Watermark(int threshold, StockWatermarkListener listener) {
+            this.threshold = threshold;
+            this.listener = listener;
+        }
     }
 }
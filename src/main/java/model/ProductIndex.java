@@ -0,0 +1,106 @@
+package model;
+
+/**
+ * Open-addressing hash index from product id to the stocked product. Keys are kept in a
+ * primitive array so lookups never box the id.
+ * <p>
+ * The index has a single writer. Every insertion is republished through a volatile field and
+ * slots only ever go from free to occupied, so readers need no lock: a lookup sees every product
+ * added before it started, and one racing with {@link #add} sees either a correct entry or a miss.
+ */
+final class ProductIndex {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private volatile Table table;
+    private int size;
+
+    ProductIndex() {
+        this(16);
+    }
+
+    ProductIndex(int expectedSize) {
+        table = new Table(tableSizeFor(Math.max(2, (int) (expectedSize / LOAD_FACTOR) + 1)));
+    }
+
+    Product get(int id) {
+        Table t = table;
+        int slot = mix(id) & t.mask;
+        Product candidate;
+        while ((candidate = t.products[slot]) != null) {
+            if (t.keys[slot] == id) {
+                return candidate;
+            }
+            slot = (slot + 1) & t.mask;
+        }
+        return null;
+    }
+
+    boolean contains(int id) {
+        return get(id) != null;
+    }
+
+    /**
+     * Indexes {@code product} under its id.
+     *
+     * @return {@code false} if the id is already indexed; the existing entry is left untouched
+     */
+    boolean add(Product product) {
+        int id = product.getId();
+        if (contains(id)) {
+            return false;
+        }
+        Table t = table;
+        if (size + 1 > (int) (t.keys.length * LOAD_FACTOR)) {
+            t = t.grow();
+        }
+        t.put(id, product);
+        table = t;
+        size++;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int n) {
+        int capacity = Integer.highestOneBit(n - 1) << 1;
+        return capacity <= 0 ? 1 << 30 : capacity;
+    }
+
+    private static final class Table {
+        final int[] keys;
+        final Product[] products;
+        final int mask;
+
+        Table(int capacity) {
+            keys = new int[capacity];
+            products = new Product[capacity];
+            mask = capacity - 1;
+        }
+
+        void put(int id, Product product) {
+            int slot = mix(id) & mask;
+            while (products[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = id;
+            products[slot] = product;
+        }
+
+        Table grow() {
+            Table bigger = new Table(keys.length << 1);
+            for (int i = 0; i < keys.length; i++) {
+                if (products[i] != null) {
+                    bigger.put(keys[i], products[i]);
+                }
+            }
+            return bigger;
+        }
+    }
+}
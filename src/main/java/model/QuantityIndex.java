@@ -0,0 +1,45 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Products bucketed by their current quantity, so low-stock questions are range scans over the
+ * smallest quantities instead of catalog scans. Safe for concurrent use; a product whose
+ * quantity changes while a query runs may be missed by that query.
+ */
+final class QuantityIndex {
+    private final ConcurrentSkipListMap<Integer, Set<Product>> productsByQuantity = new ConcurrentSkipListMap<>();
+
+    void add(Product product, int qty) {
+        productsByQuantity.computeIfAbsent(qty, key -> ConcurrentHashMap.newKeySet()).add(product);
+    }
+
+    /**
+     * Moves {@code product} between buckets. Emptied buckets are kept, as in {@link ExpiryIndex}.
+     */
+    void move(Product product, int previousQty, int newQty) {
+        if (previousQty == newQty) {
+            return;
+        }
+        Set<Product> previous = productsByQuantity.get(previousQty);
+        if (previous != null) {
+            previous.remove(product);
+        }
+        add(product, newQty);
+    }
+
+    /**
+     * @return products with a quantity of at most {@code maximumQty}, lowest first
+     */
+    List<Product> atMost(int maximumQty) {
+        List<Product> result = new ArrayList<>();
+        for (Set<Product> bucket : productsByQuantity.headMap(maximumQty, true).values()) {
+            result.addAll(bucket);
+        }
+        return result;
+    }
+}
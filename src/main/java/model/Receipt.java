@@ -3,31 +3,81 @@ package model;
 import exception.InvalidReceiptException;
 import model.Cashier;
 import model.SaleItem;
+import persistence.ReceiptHistory;
+import persistence.ReceiptJournal;
+import persistence.ReceiptSequence;
 
 import java.io.*;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 public class Receipt implements Serializable {
-    private static int ReceiptCounter = 0;
-    private final int number;
-    private final Cashier cashier;
-    private final LocalDateTime dateTime;
-    private final List<SaleItem> items;
-    private final double totalAmount;
+    // Pinned to the UID of the original class, whose total was a double; see readObject.
+    private static final long serialVersionUID = 2386875318856045185L;
+
+    // Numbers receipts built without an explicit number, and stores not given a sequence of their own.
+    static final ReceiptSequence DEFAULT_SEQUENCE = ReceiptSequence.inMemory();
+    // Not final so that readObject can set them.
+    private int number;
+    private Cashier cashier;
+    private LocalDateTime dateTime;
+    private List<SaleItem> items;
+    private long totalAmountCents;
 
     public Receipt(Cashier cashier, List<SaleItem> items) throws InvalidReceiptException {
+        this(nextDefaultNumber(), cashier, items);
+    }
+
+    /**
+     * @param number a number drawn from a {@link ReceiptSequence}
+     */
+    public Receipt(int number, Cashier cashier, List<SaleItem> items) throws InvalidReceiptException {
         validateReceiptData(cashier, items);
 
-        this.number = ++ReceiptCounter;
+        this.number = number;
         this.cashier = cashier;
         this.dateTime = LocalDateTime.now();
         this.items = new ArrayList<>(items); // Create defensive copy
-        this.totalAmount = items.stream().mapToDouble(SaleItem::getTotalCost).sum();
+        long total = 0;
+        for (int i = 0; i < items.size(); i++) {
+            total += items.get(i).getTotalCostCents();
+        }
+        this.totalAmountCents = total;
+    }
+
+    private Receipt(int number, Cashier cashier, LocalDateTime dateTime, List<SaleItem> items, long totalAmountCents) {
+        this.number = number;
+        this.cashier = cashier;
+        this.dateTime = dateTime;
+        this.items = new ArrayList<>(items);
+        this.totalAmountCents = totalAmountCents;
+    }
+
+    /**
+     * Rebuilds a receipt issued earlier, keeping its original number, date and total.
+     */
+    public static Receipt restore(int number, Cashier cashier, LocalDateTime dateTime, List<SaleItem> items,
+                                  double totalAmount) throws InvalidReceiptException {
+        return restoreCents(number, cashier, dateTime, items, Money.toMinor(totalAmount));
+    }
+
+    public static Receipt restoreCents(int number, Cashier cashier, LocalDateTime dateTime, List<SaleItem> items,
+                                       long totalAmountCents) throws InvalidReceiptException {
+        validateReceiptData(cashier, items);
+        return new Receipt(number, cashier, dateTime, items, totalAmountCents);
     }
 
-    private void validateReceiptData(Cashier cashier, List<SaleItem> items) throws InvalidReceiptException {
+    private static int nextDefaultNumber() {
+        try {
+            return DEFAULT_SEQUENCE.next();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // an in-memory sequence never writes
+        }
+    }
+
+    private static void validateReceiptData(Cashier cashier, List<SaleItem> items) throws InvalidReceiptException {
         if (cashier == null) {
             throw new InvalidReceiptException("Receipt cannot be created: Cashier is required and cannot be null");
         }
@@ -48,13 +98,30 @@ public class Receipt implements Serializable {
         }
     }
 
+    /**
+     * Reads both forms: {@code totalAmountCents}, or {@code totalAmount} in major units as
+     * written before money was kept in minor units, so {@link #deserialize(int)} still reads
+     * receipts saved by earlier versions.
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        number = fields.get("number", 0);
+        cashier = (Cashier) fields.get("cashier", null);
+        dateTime = (LocalDateTime) fields.get("dateTime", null);
+        items = (List<SaleItem>) fields.get("items", null);
+        totalAmountCents = fields.defaulted("totalAmountCents")
+                ? Money.toMinor(fields.get("totalAmount", 0.0))
+                : fields.get("totalAmountCents", 0L);
+    }
+
     public int getNumber() { return number; }
 
+    /**
+     * Writes the text receipt to {@code receipt-N.txt} in UTF-8.
+     */
     public void saveToFile() throws IOException {
-        String fileName = "receipt-" + number + ".txt";
-        try (PrintWriter writer = new PrintWriter(new FileWriter(fileName))) {
-            writer.println(this.toString());
-        }
+        ReceiptRenderer.forCurrentThread().write(this, Path.of("receipt-" + number + ".txt"));
     }
 
     public void serialize() throws IOException {
@@ -69,32 +136,50 @@ public class Receipt implements Serializable {
         }
     }
 
+    public static Receipt deserialize(ReceiptJournal journal, int number) throws IOException, ClassNotFoundException {
+        return journal.read(number);
+    }
+
+    public static Receipt deserialize(ReceiptHistory history, int number) throws IOException, ClassNotFoundException {
+        return history.get(number);
+    }
+
     public List<SaleItem> getItems() {
         return new ArrayList<>(items);
     }
 
+    /**
+     * With {@link #getItem}, walks the items without copying them as {@link #getItems} does.
+     */
+    public int getItemCount() {
+        return items.size();
+    }
+
+    public SaleItem getItem(int index) {
+        return items.get(index);
+    }
+
     public Cashier getCashier() {
         return cashier;
     }
 
+    public LocalDateTime getDateTime() {
+        return dateTime;
+    }
+
+    /**
+     * The text receipt, rendered on each call; nothing is rendered when a receipt is issued.
+     */
     @Override
     public String toString() {
-        StringBuilder sb = new StringBuilder();
-        sb.append("======= Receipt №").append(number).append(" =======\n");
-        sb.append("Cashier - ").append(cashier.getName()).append("\n");
-        sb.append("Date - ").append(dateTime).append("\n");
-
-        sb.append("------------------------\n");
-        sb.append("Bought Items: \n");
-        for (SaleItem item : items) {
-            sb.append("  ").append(item).append("\n");
-        }
-
-        sb.append(String.format("Grand Total: %.2f лв", totalAmount));
-        return sb.toString();
+        return ReceiptRenderer.appendTo(new StringBuilder(ReceiptRenderer.estimateLength(this)), this).toString();
     }
 
     public double getTotalAmount() {
-        return totalAmount;
+        return Money.toMajor(totalAmountCents);
+    }
+
+    public long getTotalAmountCents() {
+        return totalAmountCents;
     }
 }
\ No newline at end of file
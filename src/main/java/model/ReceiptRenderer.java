@@ -0,0 +1,166 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Renders the text form of a {@link Receipt}. Money, quantities and the date are appended digit
+ * by digit rather than through {@code String.format}, into a buffer sized for the receipt up
+ * front. A renderer keeps its character and byte buffers between receipts, so writing receipt
+ * files allocates next to nothing once warmed up; it is not thread-safe, and
+ * {@link #forCurrentThread()} hands each thread its own.
+ * <p>
+ * Files are always written as UTF-8, whatever the platform's default charset.
+ */
+public final class ReceiptRenderer {
+    private static final ThreadLocal<ReceiptRenderer> RENDERERS = ThreadLocal.withInitial(ReceiptRenderer::new);
+
+    private static final int HEADER_LENGTH = 96;
+    private static final int ITEM_LENGTH = 48;
+
+    private final StringBuilder text = new StringBuilder(512);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private ByteBuffer bytes = ByteBuffer.allocate(1024);
+
+    public static ReceiptRenderer forCurrentThread() {
+        return RENDERERS.get();
+    }
+
+    /**
+     * @return the receipt's text in this renderer's buffer, valid until its next use
+     */
+    public CharSequence render(Receipt receipt) {
+        text.setLength(0);
+        return appendTo(text, receipt);
+    }
+
+    /**
+     * Writes the receipt's text and a line separator to {@code file}, replacing it.
+     *
+     * @return the number of bytes written
+     */
+    public int write(Receipt receipt, Path file) throws IOException {
+        text.setLength(0);
+        appendTo(text, receipt).append(System.lineSeparator());
+        ByteBuffer encoded = encode(text);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (encoded.hasRemaining()) {
+                channel.write(encoded);
+            }
+        }
+        return encoded.limit();
+    }
+
+    private ByteBuffer encode(CharSequence chars) throws CharacterCodingException {
+        int worstCase = chars.length() * 3; // UTF-8 bytes per char outside surrogate pairs
+        if (bytes.capacity() < worstCase) {
+            bytes = ByteBuffer.allocate(worstCase);
+        }
+        CharBuffer in = CharBuffer.wrap(chars);
+        while (true) {
+            encoder.reset();
+            bytes.clear();
+            CoderResult result = encoder.encode(in, bytes, true);
+            if (!result.isOverflow()) {
+                result = encoder.flush(bytes);
+            }
+            if (result.isOverflow()) {
+                bytes = ByteBuffer.allocate(bytes.capacity() * 2);
+                in.rewind();
+                continue;
+            }
+            if (result.isError()) {
+                result.throwException();
+            }
+            bytes.flip();
+            return bytes;
+        }
+    }
+
+    /**
+     * @return roughly the length of the receipt's text, to size a buffer for it
+     */
+    public static int estimateLength(Receipt receipt) {
+        // A missing name is rendered as "null".
+        int length = HEADER_LENGTH + String.valueOf(receipt.getCashier().getName()).length();
+        for (int i = 0; i < receipt.getItemCount(); i++) {
+            length += ITEM_LENGTH + String.valueOf(receipt.getItem(i).getProductName()).length();
+        }
+        return length;
+    }
+
+    public static StringBuilder appendTo(StringBuilder text, Receipt receipt) {
+        text.append("======= Receipt №").append(receipt.getNumber()).append(" =======\n");
+        text.append("Cashier - ").append(receipt.getCashier().getName()).append('\n');
+        appendDateTime(text.append("Date - "), receipt.getDateTime()).append('\n');
+
+        text.append("------------------------\n");
+        text.append("Bought Items: \n");
+        for (int i = 0; i < receipt.getItemCount(); i++) {
+            appendTo(text.append("  "), receipt.getItem(i)).append('\n');
+        }
+
+        text.append("Grand Total: ");
+        return Money.appendTo(text, receipt.getTotalAmountCents()).append(" лв");
+    }
+
+    public static StringBuilder appendTo(StringBuilder text, SaleItem item) {
+        text.append(item.getProductName()).append(" x").append(item.getQty()).append(" * ");
+        Money.appendTo(text, item.getUnitPriceCents()).append(" leva - ");
+        return Money.appendTo(text, item.getTotalCostCents()).append(" leva");
+    }
+
+    /**
+     * Appends {@code dateTime} exactly as {@link LocalDateTime#toString()} would.
+     */
+    static StringBuilder appendDateTime(StringBuilder text, LocalDateTime dateTime) {
+        LocalDate date = dateTime.toLocalDate();
+        if (date.getYear() < 0 || date.getYear() > 9999) {
+            return text.append(dateTime);
+        }
+        appendPadded(text, date.getYear(), 4).append('-');
+        appendPadded(text, date.getMonthValue(), 2).append('-');
+        appendPadded(text, date.getDayOfMonth(), 2).append('T');
+
+        LocalTime time = dateTime.toLocalTime();
+        appendPadded(text, time.getHour(), 2).append(':');
+        appendPadded(text, time.getMinute(), 2);
+        int second = time.getSecond();
+        int nano = time.getNano();
+        if (second > 0 || nano > 0) {
+            appendPadded(text.append(':'), second, 2);
+            if (nano > 0) {
+                text.append('.');
+                if (nano % 1_000_000 == 0) {
+                    appendPadded(text, nano / 1_000_000, 3);
+                } else if (nano % 1_000 == 0) {
+                    appendPadded(text, nano / 1_000, 6);
+                } else {
+                    appendPadded(text, nano, 9);
+                }
+            }
+        }
+        return text;
+    }
+
+    private static StringBuilder appendPadded(StringBuilder text, int value, int width) {
+        for (int limit = 10, digits = 1; digits < width; limit *= 10, digits++) {
+            if (value < limit) {
+                text.append('0');
+            }
+        }
+        return text.append(value);
+    }
+}
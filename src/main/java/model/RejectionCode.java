@@ -0,0 +1,36 @@
+package model;
+
+import exception.ExpiredProductException;
+import exception.InvalidReceiptException;
+import exception.OutOfStockException;
+
+import java.io.IOException;
+
+/**
+ * Why a basket was not sold, as reported by a {@link CheckoutResult}.
+ */
+public enum RejectionCode {
+    /** A line asks for more than is in stock. */
+    OUT_OF_STOCK(OutOfStockException.class),
+    /** A line is for a product past its expiry date. */
+    EXPIRED(ExpiredProductException.class),
+    /** A line is for a product id not in the catalog; the exception API reports it as expired. */
+    UNKNOWN_PRODUCT(ExpiredProductException.class),
+    /** No receipt could be made, such as for an empty basket or without a cashier. */
+    INVALID_RECEIPT(InvalidReceiptException.class),
+    /** The stock change could not be logged; only {@link Store#processBatch} reports this as a result. */
+    IO_ERROR(IOException.class);
+
+    private final Class<? extends Exception> exceptionType;
+
+    RejectionCode(Class<? extends Exception> exceptionType) {
+        this.exceptionType = exceptionType;
+    }
+
+    /**
+     * @return the type of exception {@link Store#processTransaction} throws for this rejection
+     */
+    public Class<? extends Exception> getExceptionType() {
+        return exceptionType;
+    }
+}
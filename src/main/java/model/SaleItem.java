@@ -1,23 +1,109 @@
 package model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamException;
 import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * One line of a receipt: what was sold, how many and at what price, as of the sale. It keeps
+ * the product's id and name rather than the {@link Product} itself, so receipts neither pin
+ * catalog objects nor change when the product's stock or price does later. Names are interned,
+ * so a million lines of the same product share one string, however the receipts were read back;
+ * the first {@link #MAX_INTERNED_NAMES} distinct names are, and later ones are kept as given.
+ */
 public class SaleItem implements Serializable {
-    private final Product product;
-    private final int qty;
-    private final double unitPrice;
+    // Pinned to the UID of the original class, which held the Product itself; see readObject.
+    private static final long serialVersionUID = 4176389062837466509L;
+    public static final int MAX_INTERNED_NAMES = 64 * 1024;
+
+    /** Product names seen on any line, up to {@link #MAX_INTERNED_NAMES}; never shrinks. */
+    private static final ConcurrentHashMap<String, String> NAMES = new ConcurrentHashMap<>();
+
+    // Not final so that readObject can set them.
+    private int productId;
+    private String productName;
+    private int qty;
+    private long unitPriceCents;
 
     public SaleItem(Product product, int qty, double unitPrice) {
-        this.product = product;
+        this(product.getId(), product.getName(), qty, Money.toMinor(unitPrice));
+    }
+
+    private SaleItem(int productId, String productName, int qty, long unitPriceCents) {
+        this.productId = productId;
+        this.productName = intern(productName);
         this.qty = qty;
-        this.unitPrice = unitPrice;
+        this.unitPriceCents = unitPriceCents;
+    }
+
+    public static SaleItem ofCents(Product product, int qty, long unitPriceCents) {
+        return new SaleItem(product.getId(), product.getName(), qty, unitPriceCents);
+    }
+
+    public static SaleItem ofCents(int productId, String productName, int qty, long unitPriceCents) {
+        return new SaleItem(productId, productName, qty, unitPriceCents);
+    }
+
+    private static String intern(String name) {
+        if (name == null) {
+            return null;
+        }
+        String known = NAMES.get(name);
+        if (known != null) {
+            return known;
+        }
+        if (NAMES.size() >= MAX_INTERNED_NAMES) {
+            return name;
+        }
+        known = NAMES.putIfAbsent(name, name);
+        return known != null ? known : name;
+    }
+
+    /**
+     * Reads both forms: the product's id and name with {@code unitPriceCents}, or the
+     * {@code product} itself with {@code unitPrice} in major units, as written before lines
+     * kept only a snapshot of the product.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        qty = fields.get("qty", 0);
+        if (fields.defaulted("productId")) {
+            Product product = (Product) fields.get("product", null);
+            productId = product.getId();
+            productName = product.getName();
+            unitPriceCents = Money.toMinor(fields.get("unitPrice", 0.0));
+        } else {
+            productId = fields.get("productId", 0);
+            productName = (String) fields.get("productName", null);
+            unitPriceCents = fields.get("unitPriceCents", 0L);
+        }
+    }
+
+    /**
+     * Shares the name of a deserialized line with every other line of that product.
+     */
+    private Object readResolve() throws ObjectStreamException {
+        return new SaleItem(productId, productName, qty, unitPriceCents);
     }
+
+    public int getProductId() { return productId; }
+    public String getProductName() { return productName; }
+    public int getQty() { return qty; }
+    public double getUnitPrice() { return Money.toMajor(unitPriceCents); }
+    public long getUnitPriceCents() { return unitPriceCents; }
+
     public double getTotalCost() {
-        return unitPrice * qty;
+        return Money.toMajor(getTotalCostCents());
+    }
+
+    public long getTotalCostCents() {
+        return unitPriceCents * qty;
     }
 
     @Override
     public String toString() {
-        return String.format("%s x%d * %.2f leva - %.2f leva", product.getName(), qty, unitPrice, getTotalCost());
+        return ReceiptRenderer.appendTo(new StringBuilder(64), this).toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,9 @@
+package model;
+
+/**
+ * Notified by a {@link Product} after each change of its quantity. The store uses it to keep
+ * its indexes and running totals in step with the stock.
+ */
+interface StockListener {
+    void onQuantityChanged(Product product, int previousQty, int newQty);
+}
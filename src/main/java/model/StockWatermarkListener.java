@@ -0,0 +1,10 @@
+package model;
+
+/**
+ * Callback for {@link Product#addWatermark}. It runs on the thread that sold the stock, while
+ * the store still holds that product's stock lock, so it should only hand the event off.
+ */
+@FunctionalInterface
+public interface StockWatermarkListener {
+    void onWatermarkCrossed(Product product, int threshold, int quantity);
+}
@@ -1,111 +1,958 @@
 package model;
 
 import exception.ExpiredProductException;
+import exception.InvalidReceiptException;
 import exception.OutOfStockException;
+import metrics.CheckoutMetrics;
+import metrics.CheckoutMetrics.Phase;
 import model.Cashier;
 import model.Product;
 import model.Receipt;
 import model.SaleItem;
+import persistence.DirectReceiptPersister;
+import persistence.FileReceiptSink;
+import persistence.ReceiptCodec;
+import persistence.ReceiptHistory;
+import persistence.ReceiptPersister;
+import persistence.ReceiptSequence;
+import persistence.StateLog;
 
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Clock;
 import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class Store {
     private final List<Product> productCatalog = new ArrayList<>();
-    private final List<Cashier> employeeCashiers = new ArrayList<>();
-    private final List<Receipt> transactionRecords = new ArrayList<>();
-    private final double saleDiscountRate;
+    private final ProductIndex catalogIndex = new ProductIndex();
+    private volatile InventoryTracker inventory = new IndexedInventory();
+    private final StockListener stockListener = this::onQuantityChanged;
+    private final List<Cashier> employeeCashiers = new CopyOnWriteArrayList<>();
+    private final ReceiptHistory transactionRecords;
+    private final AtomicInteger transactionCount = new AtomicInteger();
+    // Running totals behind the compute* methods in minor units, kept current by every mutation below.
+    private final LongAdder totalRevenue = new LongAdder();
+    private final LongAdder staffPayroll = new LongAdder();
+    private final ReentrantLock[] stockLocks;
+    private final ReceiptPersister receiptPersister;
+    private final ReceiptSequence receiptSequence;
+    private final Clock clock;
+    private volatile PriceTable priceTable;
+    private volatile CheckoutMetrics metrics = CheckoutMetrics.disabled();
+    private volatile StoreEvents events = new StoreEvents();
+    // Set by recover(). Changes that feed the snapshot cut (receipts, cashiers) are logged and
+    // applied while holding the log's monitor; stock changes are logged under their stripes.
+    private volatile StateLog stateLog;
+    private final ReceiptCodec stateCodec = new ReceiptCodec();
+    private final Object checkpointLock = new Object();
+    private final int saleDiscountBasisPoints;
     private final int nearExpiryDays;
 
+    /**
+     * @param saleDiscountRate the discount on products close to expiry, 0.15 for 15%; kept to
+     *                         whole basis points
+     */
     public Store(double saleDiscountRate, int nearExpiryDays) {
-        this.saleDiscountRate = saleDiscountRate;
+        this(saleDiscountRate, nearExpiryDays, new DirectReceiptPersister(new FileReceiptSink()));
+    }
+
+    /**
+     * @param receiptPersister receives every receipt after checkout; pass an
+     *                         {@link persistence.AsyncReceiptPersister} to keep disk writes off the tills
+     */
+    public Store(double saleDiscountRate, int nearExpiryDays, ReceiptPersister receiptPersister) {
+        this(saleDiscountRate, nearExpiryDays, receiptPersister, Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param clock decides the business day that sale prices are computed for
+     */
+    public Store(double saleDiscountRate, int nearExpiryDays, ReceiptPersister receiptPersister, Clock clock) {
+        this(saleDiscountRate, nearExpiryDays, receiptPersister, clock, Receipt.DEFAULT_SEQUENCE);
+    }
+
+    /**
+     * @param receiptSequence numbers this store's receipts; open one on a file so numbering
+     *                        survives restarts
+     */
+    public Store(double saleDiscountRate, int nearExpiryDays, ReceiptPersister receiptPersister, Clock clock,
+                 ReceiptSequence receiptSequence) {
+        this(saleDiscountRate, nearExpiryDays, receiptPersister, clock, receiptSequence, ReceiptHistory.unbounded());
+    }
+
+    /**
+     * @param receiptHistory  keeps the receipts listed by {@link #getTransactions()}; give it a
+     *                        bounded hot window on a long-running store
+     */
+    public Store(double saleDiscountRate, int nearExpiryDays, ReceiptPersister receiptPersister, Clock clock,
+                 ReceiptSequence receiptSequence, ReceiptHistory receiptHistory) {
+        this.saleDiscountBasisPoints = Money.toBasisPoints(saleDiscountRate);
         this.nearExpiryDays = nearExpiryDays;
+        this.receiptPersister = receiptPersister;
+        this.clock = clock;
+        this.receiptSequence = receiptSequence;
+        this.transactionRecords = receiptHistory;
+        this.stockLocks = createStockLocks(Runtime.getRuntime().availableProcessors() * 4);
+        this.priceTable = new PriceTable(LocalDate.now(clock), clock.getZone(), 16);
+    }
+
+    private static ReentrantLock[] createStockLocks(int minimumStripes) {
+        int stripes = Integer.highestOneBit(Math.max(16, minimumStripes) - 1) << 1;
+        ReentrantLock[] locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+
+    /**
+     * Starts recording checkout latencies, receipts and rejected baskets into {@code metrics}.
+     * Pass the same instance to the receipt sink to also time how receipts are written.
+     */
+    public void setMetrics(CheckoutMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Publishes this store's events through {@code events} from now on, to tune the executor that
+     * feeds subscribers or the buffer each one gets. Subscribers of the previous publisher receive
+     * nothing more; close it to complete their subscriptions.
+     */
+    public void setEvents(StoreEvents events) {
+        this.events = events;
+    }
+
+    /**
+     * Receipts as they are created, stock taken by every sale and products as they are stocked,
+     * pushed to each {@link Flow.Subscriber} as fast as it requests them. A subscriber that falls
+     * a full buffer behind misses events rather than holding up the tills; see
+     * {@link StoreEvents#getDroppedCount()}.
+     */
+    public StoreEvents getEvents() {
+        return events;
+    }
+
+    /**
+     * Chooses how stock figures are kept for {@link #computeDeliveryCosts}, {@link #findExpiredItems},
+     * {@link #findItemsCloseToExpiry} and {@link #findItemsRunningLow}. The default,
+     * {@link CatalogLayout#INDEXED}, suits frequent queries; {@link CatalogLayout#COLUMNAR}
+     * makes each sale cheaper and turns the queries into sequential scans.
+     *
+     * @throws IllegalStateException if products have already been stocked
+     */
+    public void setCatalogLayout(CatalogLayout layout) {
+        synchronized (productCatalog) {
+            if (!productCatalog.isEmpty()) {
+                throw new IllegalStateException("The catalog layout must be chosen before stocking products.");
+            }
+            inventory = layout == CatalogLayout.COLUMNAR ? new ColumnarInventory() : new IndexedInventory();
+        }
     }
 
     public void registerCashier(Cashier employee) {
+        StateLog log = stateLog;
+        if (log == null) {
+            addCashier(employee);
+            return;
+        }
+        synchronized (log) {
+            appendState(log, StoreState.CASHIER_REGISTERED, StoreState.cashierRegistered(employee));
+            addCashier(employee);
+        }
+    }
+
+    private void addCashier(Cashier employee) {
         employeeCashiers.add(employee);
+        staffPayroll.add(employee.getSalaryCents());
     }
 
     public void stockProduct(Product item) {
-        productCatalog.add(item);
+        synchronized (productCatalog) {
+            if (catalogIndex.contains(item.getId())) {
+                throw new IllegalArgumentException("Product with id " + item.getId() + " is already stocked.");
+            }
+            StateLog log = stateLog;
+            if (log != null) {
+                item.setStateLsn(appendState(log, StoreState.PRODUCT_STOCKED, StoreState.productStocked(item)));
+            }
+            int position = productCatalog.size();
+            item.placeInCatalog(position);
+            PriceTable table = priceTable;
+            if (position >= table.prices.length) {
+                table = table.grow(position + 1);
+            }
+            table.prices[position] = priceOn(table.day, item);
+            priceTable = table;
+            // The inventory takes the product in before a till can find it, and the listener is
+            // attached in between, so every sale reaches the inventory as a change to what it holds.
+            inventory.stocked(item);
+            item.attachToStore(stockListener);
+            catalogIndex.add(item);
+            productCatalog.add(item);
+        }
+        StoreEvents events = this.events;
+        if (events.hasSubscribers()) {
+            events.publish(StoreEvent.productStocked(item));
+        }
     }
 
+    /**
+     * Sells a basket. Safe to call from many tills at once: the stock of every product in the
+     * basket is checked and deducted while holding that product's lock stripe, so the basket is
+     * reserved all-or-nothing and baskets over disjoint products do not block each other.
+     * {@code orderDetails} is only read during the call, so the till may clear and reuse it as
+     * soon as this returns.
+     * <p>
+     * A basket that cannot be sold comes back as a rejected result carrying a
+     * {@link RejectionCode} and the offending product id; no exception is created for it.
+     *
+     * @throws IOException if the sale could not be logged or handed to the persister
+     */
+    public CheckoutResult checkout(Cashier employee, Basket orderDetails) throws IOException {
+        CheckoutMetrics metrics = this.metrics;
+        long start = metrics.startTimer();
+        CheckoutResult result = sell(metrics, employee, orderDetails);
+        if (result.isAccepted()) {
+            settle(metrics, result.getReceipt(), start);
+        }
+        return result;
+    }
+
+    /**
+     * Same as {@link #checkout}, but throws the exception for a rejected basket. The rejection
+     * exceptions are created without a stack trace.
+     */
+    public Receipt processTransaction(Cashier employee, Basket orderDetails)
+            throws OutOfStockException, ExpiredProductException, InvalidReceiptException, IOException {
+        return receiptOf(checkout(employee, orderDetails));
+    }
+
+    /**
+     * Same as {@link #processTransaction(Cashier, Basket)}, for callers that build a map per basket.
+     */
     public Receipt processTransaction(Cashier employee, Map<Integer, Integer> orderDetails)
-            throws Exception {
-        LocalDate currentDate = LocalDate.now();
-        List<SaleItem> purchasedItems = new ArrayList<>();
+            throws OutOfStockException, ExpiredProductException, InvalidReceiptException, IOException {
+        return processTransaction(employee, Basket.of(orderDetails));
+    }
+
+    /**
+     * Same as {@link #processTransaction}, but returns as soon as the receipt is handed to the
+     * persister. The returned future completes once the receipt has been written.
+     */
+    public CompletableFuture<Receipt> submitTransaction(Cashier employee, Basket orderDetails)
+            throws OutOfStockException, ExpiredProductException, InvalidReceiptException, IOException {
+        CheckoutMetrics metrics = this.metrics;
+        long start = metrics.startTimer();
+        Receipt transactionReceipt = receiptOf(sell(metrics, employee, orderDetails));
+        return settle(metrics, transactionReceipt, start);
+    }
+
+    public CompletableFuture<Receipt> submitTransaction(Cashier employee, Map<Integer, Integer> orderDetails)
+            throws OutOfStockException, ExpiredProductException, InvalidReceiptException, IOException {
+        return submitTransaction(employee, Basket.of(orderDetails));
+    }
+
+    private CompletableFuture<Receipt> settle(CheckoutMetrics metrics, Receipt transactionReceipt, long start)
+            throws IOException {
+        CompletableFuture<Receipt> durable = receiptPersister.persist(transactionReceipt);
+        recordTransaction(transactionReceipt);
+        metrics.recordReceipt();
+        metrics.recordSince(Phase.CHECKOUT, start);
+        publishReceipt(transactionReceipt);
+        return durable;
+    }
+
+    /**
+     * @return the receipt of an accepted result; for a rejected one, throws its exception
+     */
+    private static Receipt receiptOf(CheckoutResult result)
+            throws OutOfStockException, ExpiredProductException, InvalidReceiptException {
+        if (result.isAccepted()) {
+            return result.getReceipt();
+        }
+        Exception rejection = result.getRejection();
+        if (rejection instanceof OutOfStockException) {
+            throw (OutOfStockException) rejection;
+        }
+        if (rejection instanceof ExpiredProductException) {
+            throw (ExpiredProductException) rejection;
+        }
+        // sell() throws I/O failures rather than returning them, so only this is left
+        throw (InvalidReceiptException) rejection;
+    }
+
+    /**
+     * Adds a receipt to the history and the totals, once it is logged when there is a state log.
+     */
+    private void recordTransaction(Receipt transactionReceipt) throws IOException {
+        StateLog log = stateLog;
+        if (log == null) {
+            addTransaction(transactionReceipt);
+            return;
+        }
+        synchronized (log) {
+            // encode may grow the codec's buffer, so it must run before the buffer is read.
+            int length = stateCodec.encode(transactionReceipt);
+            log.append(StoreState.RECEIPT_ISSUED, stateCodec.array(), length);
+            addTransaction(transactionReceipt);
+        }
+    }
+
+    private void addTransaction(Receipt transactionReceipt) {
+        transactionRecords.add(transactionReceipt);
+        transactionCount.incrementAndGet();
+        totalRevenue.add(transactionReceipt.getTotalAmountCents());
+    }
 
-        for (Map.Entry<Integer, Integer> orderEntry : orderDetails.entrySet()) {
-            Product selectedProduct = locateProductById(orderEntry.getKey());
-            int requestedAmount = orderEntry.getValue();
+    /**
+     * Sells many baskets at once, for tills replaying the sales they made while offline. Every
+     * basket is resolved and priced against one price table, stock for the whole batch is
+     * reserved in one pass over the lock stripes, and all receipts go to the persister together.
+     * Baskets are settled in order, so when two compete for the last units the earlier one wins.
+     * A rejected basket leaves stock untouched and does not affect the others. Each sold basket
+     * records one checkout latency, from the start of the batch until that basket is settled.
+     *
+     * @return one result per order, in the same order
+     * @throws IOException if the receipts could not be handed to the persister; as with
+     *                     {@link #processTransaction}, the stock sold stays deducted
+     */
+    public List<CheckoutResult> processBatch(List<BasketOrder> orders) throws IOException {
+        CheckoutMetrics metrics = this.metrics;
+        long start = metrics.startTimer();
+        int orderCount = orders.size();
+        CheckoutResult[] results = new CheckoutResult[orderCount];
+        PendingBasket[] baskets = new PendingBasket[orderCount];
 
-            if (selectedProduct == null || selectedProduct.isExpired(currentDate)) {
-                throw new ExpiredProductException();
+        PriceTable prices = currentPriceTable();
+        int lineCount = 0;
+        for (int i = 0; i < orderCount; i++) {
+            PendingBasket basket = resolve(orders.get(i).getBasket());
+            if (price(basket, prices)) {
+                baskets[i] = basket;
+                lineCount += basket.products.length;
+            } else {
+                results[i] = reject(metrics, basket);
             }
+        }
 
-            if (selectedProduct.getQty() < requestedAmount) {
-                throw new OutOfStockException(selectedProduct.getName(), selectedProduct.getQty());
+        Product[] batchProducts = new Product[lineCount];
+        int line = 0;
+        for (PendingBasket basket : baskets) {
+            if (basket != null) {
+                System.arraycopy(basket.products, 0, batchProducts, line, basket.products.length);
+                line += basket.products.length;
+            }
+        }
+        int[] stripes = stripesFor(batchProducts);
+        lockStripes(stripes);
+        try {
+            for (int i = 0; i < orderCount; i++) {
+                if (baskets[i] != null) {
+                    try {
+                        if (!takeStock(baskets[i])) {
+                            results[i] = reject(metrics, baskets[i]);
+                            baskets[i] = null;
+                        }
+                    } catch (IOException e) {
+                        results[i] = reject(metrics, RejectionCode.IO_ERROR, e);
+                        baskets[i] = null;
+                    }
+                }
             }
+        } finally {
+            unlockStripes(stripes);
+        }
 
-            double finalPrice = selectedProduct.getPriceOnSale(currentDate, nearExpiryDays, saleDiscountRate);
-            selectedProduct.decreaseQuantity(requestedAmount);
-            purchasedItems.add(new SaleItem(selectedProduct, requestedAmount, finalPrice));
+        List<Receipt> receipts = new ArrayList<>(orderCount);
+        for (int i = 0; i < orderCount; i++) {
+            if (baskets[i] != null) {
+                try {
+                    Receipt transactionReceipt = issueReceipt(orders.get(i).getCashier(), baskets[i]);
+                    publishStockTaken(baskets[i]);
+                    results[i] = CheckoutResult.accepted(transactionReceipt);
+                    receipts.add(transactionReceipt);
+                } catch (InvalidReceiptException e) {
+                    results[i] = reject(metrics, RejectionCode.INVALID_RECEIPT, e);
+                } catch (IOException e) {
+                    results[i] = reject(metrics, RejectionCode.IO_ERROR, e);
+                }
+            }
         }
 
-        Receipt transactionReceipt = new Receipt(employee, purchasedItems);
-        transactionReceipt.saveToFile();
-        transactionReceipt.serialize();
-        transactionRecords.add(transactionReceipt);
-        return transactionReceipt;
+        receiptPersister.persistAll(receipts);
+        for (Receipt transactionReceipt : receipts) {
+            recordTransaction(transactionReceipt);
+            metrics.recordReceipt();
+            metrics.recordSince(Phase.CHECKOUT, start);
+            publishReceipt(transactionReceipt);
+        }
+        return Arrays.asList(results);
+    }
+
+    private void publishReceipt(Receipt transactionReceipt) {
+        StoreEvents events = this.events;
+        if (events.hasSubscribers()) {
+            events.publish(StoreEvent.receiptCreated(transactionReceipt));
+        }
+    }
+
+    /**
+     * Publishes the stock a sold basket took, once its stripes are released and its receipt
+     * issued, so subscribers never hear of stock that was given back.
+     */
+    private void publishStockTaken(PendingBasket basket) {
+        int[] remaining = basket.remaining;
+        if (remaining == null) {
+            return;
+        }
+        StoreEvents events = this.events;
+        for (int i = 0; i < remaining.length; i++) {
+            events.publish(StoreEvent.stockDecremented(basket.productIds[i], basket.amounts[i], remaining[i]));
+        }
+    }
+
+    private static CheckoutResult reject(CheckoutMetrics metrics, PendingBasket basket) {
+        RejectionCode rejectionCode = basket.rejectionCode;
+        metrics.recordRejection(rejectionCode.getExceptionType());
+        int line = basket.rejectedLine;
+        return CheckoutResult.rejected(rejectionCode, basket.productIds[line], basket.products[line], basket.available);
+    }
+
+    private static CheckoutResult reject(CheckoutMetrics metrics, RejectionCode rejectionCode, Exception rejection) {
+        metrics.recordRejection(rejection);
+        return CheckoutResult.rejected(rejectionCode, rejection);
+    }
+
+    private CheckoutResult sell(CheckoutMetrics metrics, Cashier employee, Basket orderDetails) throws IOException {
+        try {
+            long start = metrics.startTimer();
+            PendingBasket basket = resolve(orderDetails);
+            metrics.recordSince(Phase.LOOKUP, start);
+
+            start = metrics.startTimer();
+            boolean priced = price(basket, currentPriceTable());
+            metrics.recordSince(Phase.PRICING, start);
+
+            if (!priced || !reserveStock(basket)) {
+                return reject(metrics, basket);
+            }
+
+            start = metrics.startTimer();
+            Receipt transactionReceipt = issueReceipt(employee, basket);
+            metrics.recordSince(Phase.RECEIPT_CONSTRUCTION, start);
+            publishStockTaken(basket);
+            return CheckoutResult.accepted(transactionReceipt);
+        } catch (InvalidReceiptException e) {
+            return reject(metrics, RejectionCode.INVALID_RECEIPT, e);
+        } catch (IOException e) {
+            metrics.recordRejection(e);
+            throw e;
+        }
+    }
+
+    private PendingBasket resolve(Basket orderDetails) {
+        int lineCount = orderDetails.size();
+        PendingBasket basket = new PendingBasket(lineCount);
+        for (int line = 0; line < lineCount; line++) {
+            int productId = orderDetails.getProductId(line);
+            basket.productIds[line] = productId;
+            basket.products[line] = locateProductById(productId);
+            basket.amounts[line] = orderDetails.getQuantity(line);
+        }
+        return basket;
+    }
+
+    /**
+     * @return false, with the basket marked rejected, if any line is not for sale
+     */
+    private boolean price(PendingBasket basket, PriceTable prices) {
+        for (int i = 0; i < basket.products.length; i++) {
+            Product product = basket.products[i];
+            if (product == null) {
+                return basket.reject(RejectionCode.UNKNOWN_PRODUCT, i, 0);
+            }
+            long finalPrice = salePrice(prices, product);
+            if (finalPrice == PriceTable.NOT_FOR_SALE) {
+                return basket.reject(RejectionCode.EXPIRED, i, 0);
+            }
+            basket.prices[i] = finalPrice;
+        }
+        return true;
+    }
+
+    /**
+     * Builds the receipt for a basket whose stock is already reserved, giving the stock back if
+     * no receipt can be issued.
+     */
+    private Receipt issueReceipt(Cashier employee, PendingBasket basket) throws InvalidReceiptException, IOException {
+        int lineCount = basket.products.length;
+        List<SaleItem> purchasedItems = new ArrayList<>(lineCount);
+        for (int i = 0; i < lineCount; i++) {
+            purchasedItems.add(SaleItem.ofCents(basket.products[i], basket.amounts[i], basket.prices[i]));
+        }
+
+        try {
+            return new Receipt(receiptSequence.next(), employee, purchasedItems);
+        } catch (InvalidReceiptException | IOException e) {
+            try {
+                releaseStock(basket);
+            } catch (IOException logFailure) {
+                e.addSuppressed(logFailure);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reprices the whole catalog for the business day the clock is in now, refreshing which
+     * products get the near-expiry discount. Checkout calls this by itself on the first sale of
+     * a new day; a scheduler may call it at midnight to take the cost off that sale.
+     */
+    public void rollOverBusinessDay() {
+        synchronized (productCatalog) {
+            LocalDate today = LocalDate.now(clock);
+            if (priceTable.day.equals(today)) {
+                return;
+            }
+            PriceTable table = new PriceTable(today, clock.getZone(), Math.max(16, productCatalog.size()));
+            for (int position = 0; position < productCatalog.size(); position++) {
+                table.prices[position] = priceOn(today, productCatalog.get(position));
+            }
+            priceTable = table;
+        }
+    }
+
+    private PriceTable currentPriceTable() {
+        PriceTable table = priceTable;
+        if (!table.covers(clock.millis())) {
+            rollOverBusinessDay();
+            table = priceTable;
+        }
+        return table;
+    }
+
+    /**
+     * @return the product's price from {@code table}, or {@link PriceTable#NOT_FOR_SALE} if it has expired
+     */
+    private long salePrice(PriceTable table, Product product) {
+        int position = product.getCatalogPosition();
+        if (position < table.prices.length) {
+            long price = table.prices[position];
+            if (price != PriceTable.UNPRICED) {
+                return price;
+            }
+        }
+        // Stocked after this checkout read the table, and priced only in a newer one.
+        return priceOn(table.day, product);
+    }
+
+    private long priceOn(LocalDate day, Product product) {
+        if (product.isExpired(day)) {
+            return PriceTable.NOT_FOR_SALE;
+        }
+        return product.getPriceOnSaleCents(day, nearExpiryDays, saleDiscountBasisPoints);
+    }
+
+    private boolean reserveStock(PendingBasket basket) throws IOException {
+        int[] stripes = stripesFor(basket.products);
+        lockStripes(stripes);
+        try {
+            return takeStock(basket);
+        } finally {
+            unlockStripes(stripes);
+        }
+    }
+
+    /**
+     * Deducts the whole basket, or nothing if any line is short or cannot be logged. The caller
+     * holds the stripes.
+     *
+     * @return false, with the basket marked rejected, if a line is short
+     */
+    private boolean takeStock(PendingBasket basket) throws IOException {
+        Product[] products = basket.products;
+        int[] amounts = basket.amounts;
+        for (int i = 0; i < products.length; i++) {
+            int available = products[i].getQty();
+            if (available < amounts[i]) {
+                return basket.reject(RejectionCode.OUT_OF_STOCK, i, available);
+            }
+        }
+        StateLog log = stateLog;
+        long lsn = log == null ? StoreState.NO_LSN : logStockChange(log, products, amounts, -1);
+        int[] remaining = events.hasSubscribers() ? new int[products.length] : null;
+        for (int i = 0; i < products.length; i++) {
+            products[i].decreaseQuantity(amounts[i]);
+            products[i].setStateLsn(lsn);
+            if (remaining != null) {
+                remaining[i] = products[i].getQty();
+            }
+        }
+        basket.remaining = remaining;
+        return true;
+    }
+
+    private void releaseStock(PendingBasket basket) throws IOException {
+        int[] stripes = stripesFor(basket.products);
+        lockStripes(stripes);
+        try {
+            StateLog log = stateLog;
+            long lsn = log == null ? StoreState.NO_LSN : logStockChange(log, basket.products, basket.amounts, 1);
+            for (int i = 0; i < basket.products.length; i++) {
+                basket.products[i].restoreQuantity(basket.amounts[i]);
+                basket.products[i].setStateLsn(lsn);
+            }
+        } finally {
+            unlockStripes(stripes);
+        }
+    }
+
+    /**
+     * Logs the quantities {@code products} will have once each has changed by {@code sign}
+     * times its amount. The caller holds their stripes, so no other change can come in between.
+     */
+    private static long logStockChange(StateLog log, Product[] products, int[] amounts, int sign) throws IOException {
+        int[] quantities = new int[products.length];
+        for (int i = 0; i < products.length; i++) {
+            quantities[i] = products[i].getQty() + sign * amounts[i];
+        }
+        byte[] record = StoreState.stockSet(products, quantities);
+        return log.append(StoreState.STOCK_SET, record, record.length);
+    }
+
+    private static long appendState(StateLog log, byte type, byte[] record) {
+        try {
+            return log.append(type, record, record.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void lockStripes(int[] stripes) {
+        for (int stripe : stripes) {
+            stockLocks[stripe].lock();
+        }
+    }
+
+    private void unlockStripes(int[] stripes) {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stockLocks[stripes[i]].unlock();
+        }
+    }
+
+    /**
+     * Keeps the inventory tracker in step with every stock change, whoever makes it.
+     */
+    private void onQuantityChanged(Product product, int previousQty, int newQty) {
+        inventory.onQuantityChanged(product, previousQty, newQty);
+    }
+
+    /**
+     * @return the distinct lock stripes covering {@code products}, in ascending order so that
+     * every till acquires them in the same order
+     */
+    private int[] stripesFor(Product[] products) {
+        int[] stripes = new int[products.length];
+        for (int i = 0; i < products.length; i++) {
+            stripes[i] = stripeOf(products[i]);
+        }
+        Arrays.sort(stripes);
+        int distinct = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            if (i == 0 || stripes[i] != stripes[i - 1]) {
+                stripes[distinct++] = stripes[i];
+            }
+        }
+        return distinct == stripes.length ? stripes : Arrays.copyOf(stripes, distinct);
+    }
+
+    private int stripeOf(Product product) {
+        int h = product.getId() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (stockLocks.length - 1);
+    }
+
+    /**
+     * Rebuilds this store from the state saved in {@code log}'s directory: the newest snapshot
+     * written by {@link #checkpoint()}, then every change logged after it. From then on every
+     * change to the catalog, the cashiers, stock and the transaction totals is logged to
+     * {@code log} before it is applied, so the next start recovers it. An empty directory
+     * recovers an empty store.
+     * <p>
+     * Receipts issued before the snapshot are not listed by {@link #getTransactions()} again;
+     * {@link #findReceipt} still finds them when the receipt history reads from the journal
+     * they were written to. Stock changed by calling {@link Product#decreaseQuantity} directly
+     * is not logged.
+     *
+     * @throws IllegalStateException if products or cashiers were added before recovery
+     */
+    public void recover(StateLog log) throws IOException {
+        synchronized (productCatalog) {
+            if (stateLog != null || !productCatalog.isEmpty() || !employeeCashiers.isEmpty()) {
+                throw new IllegalStateException("A store must recover before anything else is added to it.");
+            }
+            StoreState.Snapshot snapshot = StoreState.readLatestSnapshot(log.getDirectory());
+            long replayFrom = log.getStartLsn();
+            if (snapshot != null) {
+                restore(snapshot);
+                replayFrom = snapshot.cutLsn;
+            } else if (replayFrom > 0) {
+                throw new StreamCorruptedException("No readable snapshot in " + log.getDirectory()
+                        + " and the state log before LSN " + replayFrom + " has been discarded.");
+            }
+            log.replay(replayFrom, this::replay);
+            stateLog = log;
+        }
+    }
+
+    private void restore(StoreState.Snapshot snapshot) {
+        for (Cashier cashier : snapshot.cashiers) {
+            addCashier(cashier);
+        }
+        for (int i = 0; i < snapshot.products.length; i++) {
+            stockProduct(snapshot.products[i]);
+            snapshot.products[i].setStateLsn(snapshot.productLsns[i]);
+        }
+        totalRevenue.add(snapshot.revenueCents);
+        transactionCount.set(snapshot.transactionCount);
+    }
+
+    private void replay(long lsn, byte type, ByteBuffer record) throws IOException {
+        switch (type) {
+            case StoreState.PRODUCT_STOCKED:
+                Product product = StoreState.readProduct(record);
+                stockProduct(product);
+                product.setStateLsn(lsn);
+                break;
+            case StoreState.CASHIER_REGISTERED:
+                addCashier(StoreState.readCashier(record));
+                break;
+            case StoreState.STOCK_SET:
+                for (int line = record.getInt(); line > 0; line--) {
+                    Product stocked = locateProductById(record.getInt());
+                    int qty = record.getInt();
+                    if (stocked == null) {
+                        throw new StreamCorruptedException("State log changes stock of an unknown product at LSN " + lsn);
+                    }
+                    if (lsn > stocked.getStateLsn()) {
+                        stocked.recoverQuantity(qty, lsn);
+                    }
+                }
+                break;
+            case StoreState.RECEIPT_ISSUED:
+                addTransaction(stateCodec.decode(record));
+                break;
+            default:
+                throw new StreamCorruptedException("Unknown state log record type " + type + " at LSN " + lsn);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the catalog, stock, cashiers and totals next to the state log, so
+     * that {@link #recover} only replays what is logged after it, then deletes the log segments
+     * and snapshots no longer needed. Checkout carries on meanwhile: tills wait only while the
+     * catalog and cashier lists are copied, and each product's stock is read under its own
+     * lock stripe.
+     *
+     * @throws IllegalStateException if the store was not given a state log by {@link #recover}
+     */
+    public void checkpoint() throws IOException {
+        StateLog log = stateLog;
+        if (log == null) {
+            throw new IllegalStateException("Checkpoints need a state log; call recover first.");
+        }
+        synchronized (checkpointLock) {
+            long cutLsn;
+            Product[] products;
+            List<Cashier> cashiers;
+            long revenue;
+            int count;
+            synchronized (productCatalog) {
+                synchronized (log) {
+                    cutLsn = log.getEndLsn();
+                    products = productCatalog.toArray(new Product[0]);
+                    cashiers = new ArrayList<>(employeeCashiers);
+                    revenue = totalRevenue.sum();
+                    count = transactionCount.get();
+                }
+            }
+
+            int[] quantities = new int[products.length];
+            long[] productLsns = new long[products.length];
+            for (int i = 0; i < products.length; i++) {
+                ReentrantLock stripe = stockLocks[stripeOf(products[i])];
+                stripe.lock();
+                try {
+                    quantities[i] = products[i].getQty();
+                    productLsns[i] = products[i].getStateLsn();
+                } finally {
+                    stripe.unlock();
+                }
+            }
+            // The quantities just read may include records past the cut; they must be on disk
+            // before a snapshot that depends on them.
+            log.sync();
+
+            long oldestNeeded = StoreState.writeSnapshot(log.getDirectory(), new StoreState.Snapshot(
+                    cutLsn, revenue, count, cashiers, products, quantities, productLsns));
+            log.discardBefore(oldestNeeded);
+        }
+    }
+
+    public Product findProductById(int productId) {
+        return locateProductById(productId);
     }
 
     private Product locateProductById(int productId) {
-        return productCatalog.stream().filter(item -> item.getId() == productId).findFirst().orElse(null);
+        return catalogIndex.get(productId);
     }
 
     public double computeTotalRevenue() {
-        return transactionRecords.stream().mapToDouble(Receipt::getTotalAmount).sum();
+        return Money.toMajor(computeTotalRevenueCents());
     }
 
     public double computeStaffPayroll() {
-        return employeeCashiers.stream().mapToDouble(Cashier::getSalary).sum();
+        return Money.toMajor(computeStaffPayrollCents());
     }
 
     public double computeDeliveryCosts() {
-        return productCatalog.stream().mapToDouble(item -> item.deliveryPrice * item.getQty()).sum();
+        return Money.toMajor(computeDeliveryCostsCents());
     }
 
     public double computeNetProfit() {
-        return computeTotalRevenue() - computeStaffPayroll() - computeDeliveryCosts();
+        return Money.toMajor(computeNetProfitCents());
+    }
+
+    public long computeTotalRevenueCents() {
+        return totalRevenue.sum();
+    }
+
+    public long computeStaffPayrollCents() {
+        return staffPayroll.sum();
     }
 
+    public long computeDeliveryCostsCents() {
+        return inventory.deliveryCosts();
+    }
+
+    public long computeNetProfitCents() {
+        return computeTotalRevenueCents() - computeStaffPayrollCents() - computeDeliveryCostsCents();
+    }
+
+    /**
+     * @return every receipt this store has issued, including those before the snapshot a
+     * {@link #recover recovered} store started from, which {@link #getAllTransactions()} no
+     * longer lists
+     */
     public int getTotalTransactionCount() {
-        return transactionRecords.size();
+        return transactionCount.get();
     }
 
     public List<Product> getStoreInventory() {
-        return new ArrayList<>(productCatalog);
+        synchronized (productCatalog) {
+            return new ArrayList<>(productCatalog);
+        }
+    }
+
+    /**
+     * @return the registered cashier with that id, or null if there is none
+     */
+    public Cashier findCashierById(int cashierId) {
+        for (Cashier cashier : employeeCashiers) {
+            if (cashier.getId() == cashierId) {
+                return cashier;
+            }
+        }
+        return null;
     }
 
     public List<Cashier> getStoreEmployees() {
         return new ArrayList<>(employeeCashiers);
     }
 
+    /**
+     * Copies every receipt into a list, reading spilled ones back from disk. Prefer
+     * {@link #getTransactions()} on a store with a long history. After {@link #recover} this
+     * lists only the receipts logged since the snapshot, so it can hold fewer receipts than
+     * {@link #getTotalTransactionCount()} counts.
+     */
     public List<Receipt> getAllTransactions() {
-        return new ArrayList<>(transactionRecords);
+        List<Receipt> receipts = new ArrayList<>(transactionRecords.size());
+        for (Receipt receipt : transactionRecords) {
+            receipts.add(receipt);
+        }
+        return receipts;
+    }
+
+    /**
+     * @return a lazy, oldest-first view of every receipt this store has issued, or since the
+     * snapshot it was {@link #recover recovered} from
+     */
+    public Iterable<Receipt> getTransactions() {
+        return transactionRecords::iterator;
+    }
+
+    /**
+     * @throws java.io.FileNotFoundException if this store did not issue a receipt with that number
+     */
+    public Receipt findReceipt(int number) throws IOException, ClassNotFoundException {
+        return transactionRecords.get(number);
     }
 
     // Utility methods
+
+    /**
+     * @return products still in stock whose expiry date is before {@code checkDate}
+     */
     public List<Product> findExpiredItems(LocalDate checkDate) {
-        return productCatalog.stream()
-                .filter(item -> item.isExpired(checkDate))
-                .collect(Collectors.toList());
+        return inventory.expiredBefore(checkDate);
+    }
+
+    /**
+     * @return products still in stock that are sold at the near-expiry discount on {@code checkDate}
+     */
+    public List<Product> findItemsCloseToExpiry(LocalDate checkDate) {
+        return inventory.expiringBetween(checkDate, checkDate.plusDays(nearExpiryDays));
     }
 
     public List<Product> findItemsRunningLow(int minimumStock) {
-        return productCatalog.stream()
-                .filter(item -> item.getQty() <= minimumStock)
-                .collect(Collectors.toList());
+        return inventory.atMost(minimumStock);
+    }
+
+    /**
+     * The lines of a basket being checked out, resolved against the catalog.
+     */
+    private static final class PendingBasket {
+        final int[] productIds;
+        final Product[] products;
+        final int[] amounts;
+        final long[] prices;
+        // Stock left after the sale, per line; only kept while someone subscribes to the events.
+        int[] remaining;
+        RejectionCode rejectionCode;
+        int rejectedLine;
+        int available;
+
+        PendingBasket(int lineCount) {
+            productIds = new int[lineCount];
+            products = new Product[lineCount];
+            amounts = new int[lineCount];
+            prices = new long[lineCount];
+        }
+
+        boolean reject(RejectionCode rejectionCode, int line, int available) {
+            this.rejectionCode = rejectionCode;
+            this.rejectedLine = line;
+            this.available = available;
+            return false;
+        }
     }
-}
\ No newline at end of file
+}
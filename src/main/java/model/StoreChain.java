@@ -0,0 +1,282 @@
+package model;
+
+import persistence.DirectReceiptPersister;
+import persistence.ReceiptHistory;
+import persistence.ReceiptJournal;
+import persistence.ReceiptSequence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * The shops of a chain, partitioned into shards by store id. Every store keeps its own locks,
+ * receipt numbering and receipt journal, under its shard's directory, so tills in different
+ * stores never contend. Chain-wide figures and stock reports run one fork-join task per shard and
+ * merge the shards' partial results as the tasks join; each figure is the sum of what every store
+ * reported at the moment it was asked, not a single point-in-time snapshot of the chain.
+ */
+public class StoreChain implements Closeable {
+    private static final String SHARD_DIRECTORY = "shard-%02d";
+
+    private final Path root;
+    private final Shard[] shards;
+    private final ForkJoinPool pool;
+    private final Map<String, Store> stores = new ConcurrentHashMap<>();
+    private final List<Closeable> storage = new CopyOnWriteArrayList<>();
+
+    public StoreChain(Path root, int shardCount) {
+        this(root, shardCount, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param root       holds a directory per shard, each with a directory per store opened by
+     *                   {@link #openStore}; a store keeps its shard across restarts
+     * @param shardCount fixed for the life of {@code root}
+     */
+    public StoreChain(Path root, int shardCount, ForkJoinPool pool) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("A chain needs at least one shard");
+        }
+        this.root = root;
+        this.pool = pool;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+    }
+
+    /**
+     * Opens, or reopens after a restart, a store whose receipts are journaled and numbered in its
+     * own directory under its shard. The chain closes that storage on {@link #close()}.
+     */
+    public Store openStore(String storeId, double saleDiscountRate, int nearExpiryDays) throws IOException {
+        checkStoreId(storeId);
+        if (stores.containsKey(storeId)) {
+            throw new IllegalArgumentException("Store " + storeId + " is already in the chain");
+        }
+        Path directory = storageOf(storeId);
+        Files.createDirectories(directory);
+        ReceiptJournal journal = ReceiptJournal.open(directory.resolve("receipts"));
+        DirectReceiptPersister persister = new DirectReceiptPersister(journal);
+        ReceiptSequence sequence = null;
+        try {
+            sequence = ReceiptSequence.open(directory.resolve("receipt.seq"));
+            Store store = new Store(saleDiscountRate, nearExpiryDays, persister, Clock.systemDefaultZone(), sequence,
+                    new ReceiptHistory(10_000, journal, 1_000));
+            register(storeId, store);
+            storage.add(sequence);
+            storage.add(persister);
+            return store;
+        } catch (IOException | RuntimeException e) {
+            closeAfterFailure(e, sequence, persister);
+            throw e;
+        }
+    }
+
+    /**
+     * Closes storage opened for a store that could not be added, keeping close failures as
+     * suppressed exceptions of {@code failure}.
+     */
+    private static void closeAfterFailure(Exception failure, Closeable... opened) {
+        for (Closeable closeable : opened) {
+            if (closeable == null) {
+                continue;
+            }
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    /**
+     * Adds a store whose receipt storage the caller wired and closes itself.
+     */
+    public void register(String storeId, Store store) {
+        checkStoreId(storeId);
+        if (stores.putIfAbsent(storeId, store) != null) {
+            throw new IllegalArgumentException("Store " + storeId + " is already in the chain");
+        }
+        shards[shardOf(storeId)].stores.put(storeId, store);
+    }
+
+    private static void checkStoreId(String storeId) {
+        if (storeId.isEmpty() || !storeId.chars().allMatch(c -> Character.isLetterOrDigit(c) || c == '-' || c == '_')) {
+            throw new IllegalArgumentException("Store ids are letters, digits, '-' and '_', not '" + storeId + "'");
+        }
+    }
+
+    /**
+     * @return the store, or {@code null} if the chain has none by that id
+     */
+    public Store getStore(String storeId) {
+        return stores.get(storeId);
+    }
+
+    public int getStoreCount() {
+        return stores.size();
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public int shardOf(String storeId) {
+        return Math.floorMod(storeId.hashCode(), shards.length);
+    }
+
+    /**
+     * @return where {@link #openStore} keeps the store's receipts
+     */
+    public Path storageOf(String storeId) {
+        return root.resolve(String.format(SHARD_DIRECTORY, shardOf(storeId))).resolve(storeId);
+    }
+
+    public double computeTotalRevenue() {
+        return Money.toMajor(computeTotalRevenueCents());
+    }
+
+    public double computeNetProfit() {
+        return Money.toMajor(computeNetProfitCents());
+    }
+
+    public long computeTotalRevenueCents() {
+        return acrossShards(shard -> {
+            long revenue = 0;
+            for (Store store : shard.stores.values()) {
+                revenue += store.computeTotalRevenueCents();
+            }
+            return revenue;
+        }, Long::sum);
+    }
+
+    public long computeNetProfitCents() {
+        return acrossShards(shard -> {
+            long profit = 0;
+            for (Store store : shard.stores.values()) {
+                profit += store.computeNetProfitCents();
+            }
+            return profit;
+        }, Long::sum);
+    }
+
+    /**
+     * @return per store id, in id order, the products past their expiry date on {@code checkDate}
+     */
+    public Map<String, List<Product>> findExpiredItems(LocalDate checkDate) {
+        return perStore(store -> store.findExpiredItems(checkDate));
+    }
+
+    /**
+     * @return per store id, in id order, the products sold at the near-expiry discount on {@code checkDate}
+     */
+    public Map<String, List<Product>> findItemsCloseToExpiry(LocalDate checkDate) {
+        return perStore(store -> store.findItemsCloseToExpiry(checkDate));
+    }
+
+    /**
+     * @return per store id, in id order, the products with at most {@code minimumStock} left
+     */
+    public Map<String, List<Product>> findItemsRunningLow(int minimumStock) {
+        return perStore(store -> store.findItemsRunningLow(minimumStock));
+    }
+
+    /**
+     * Stores with nothing to report are left out.
+     */
+    private Map<String, List<Product>> perStore(Function<Store, List<Product>> query) {
+        Map<String, List<Product>> merged = acrossShards(shard -> {
+            Map<String, List<Product>> found = new TreeMap<>();
+            shard.stores.forEach((storeId, store) -> {
+                List<Product> products = query.apply(store);
+                if (!products.isEmpty()) {
+                    found.put(storeId, products);
+                }
+            });
+            return found;
+        }, (left, right) -> {
+            left.putAll(right);
+            return left;
+        });
+        return Collections.unmodifiableMap(merged);
+    }
+
+    private <R> R acrossShards(Function<Shard, R> perShard, BinaryOperator<R> merge) {
+        return pool.invoke(new ShardTask<>(shards, perShard, merge, 0, shards.length));
+    }
+
+    /**
+     * Closes the storage of every store opened by {@link #openStore}.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        List<Closeable> opened = new ArrayList<>(storage);
+        Collections.reverse(opened);
+        for (Closeable closeable : opened) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        storage.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static final class Shard {
+        final Map<String, Store> stores = new ConcurrentHashMap<>();
+    }
+
+    private static final class ShardTask<R> extends RecursiveTask<R> {
+        private static final long serialVersionUID = 1L;
+
+        private final Shard[] shards;
+        private final Function<Shard, R> perShard;
+        private final BinaryOperator<R> merge;
+        private final int from;
+        private final int to;
+
+        ShardTask(Shard[] shards, Function<Shard, R> perShard, BinaryOperator<R> merge, int from, int to) {
+            this.shards = shards;
+            this.perShard = perShard;
+            this.merge = merge;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected R compute() {
+            if (to - from == 1) {
+                return perShard.apply(shards[from]);
+            }
+            int middle = (from + to) >>> 1;
+            ShardTask<R> left = new ShardTask<>(shards, perShard, merge, from, middle);
+            left.fork();
+            R right = new ShardTask<>(shards, perShard, merge, middle, to).compute();
+            return merge.apply(left.join(), right);
+        }
+    }
+}
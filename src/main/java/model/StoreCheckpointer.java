@@ -0,0 +1,70 @@
+package model;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Periodically calls {@link Store#checkpoint()}, so that the state log a restart has to replay
+ * never grows past one period of changes. A scheduled checkpoint that fails is retried at the
+ * next period and counted in {@link #getFailureCount()}.
+ */
+public class StoreCheckpointer implements AutoCloseable {
+    private final Store store;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong failures = new AtomicLong();
+    private volatile Exception lastFailure;
+
+    public StoreCheckpointer(Store store, long period, TimeUnit unit) {
+        this.store = store;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "store-checkpointer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkpointQuietly, period, period, unit);
+    }
+
+    private void checkpointQuietly() {
+        try {
+            store.checkpoint();
+        } catch (IOException | RuntimeException e) {
+            // an exception escaping the task would silently cancel every later checkpoint
+            lastFailure = e;
+            failures.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return how many scheduled checkpoints have failed so far
+     */
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * @return why the most recent failed scheduled checkpoint failed, or null if none has
+     */
+    public Exception getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Stops the schedule, waits for a checkpoint in progress and takes one final checkpoint. A
+     * checkpoint in progress is not interrupted: an interrupt during a log sync would close the
+     * store's state log. If interrupted while waiting, takes the final checkpoint anyway, since
+     * checkpoints never run concurrently, and keeps the interrupt status set.
+     */
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        store.checkpoint();
+    }
+}
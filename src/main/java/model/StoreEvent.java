@@ -0,0 +1,71 @@
+package model;
+
+/**
+ * Something that happened in a {@link Store}, as published to the subscribers of
+ * {@link Store#getEvents()}.
+ */
+public final class StoreEvent {
+    public enum Type {
+        /** A receipt was issued and handed to the persister; {@link #getReceipt()} has it. */
+        RECEIPT_CREATED,
+        /** A sale took {@link #getChange()} units of a product, leaving {@link #getQuantity()}. */
+        STOCK_DECREMENTED,
+        /** A product joined the catalog with {@link #getQuantity()} units. */
+        PRODUCT_STOCKED
+    }
+
+    private final Type type;
+    private final Receipt receipt;
+    private final int productId;
+    private final int quantity;
+    private final int change;
+
+    private StoreEvent(Type type, Receipt receipt, int productId, int quantity, int change) {
+        this.type = type;
+        this.receipt = receipt;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.change = change;
+    }
+
+    static StoreEvent receiptCreated(Receipt receipt) {
+        return new StoreEvent(Type.RECEIPT_CREATED, receipt, -1, 0, 0);
+    }
+
+    static StoreEvent stockDecremented(int productId, int sold, int remaining) {
+        return new StoreEvent(Type.STOCK_DECREMENTED, null, productId, remaining, sold);
+    }
+
+    static StoreEvent productStocked(Product product) {
+        return new StoreEvent(Type.PRODUCT_STOCKED, null, product.getId(), product.getQty(), product.getQty());
+    }
+
+    public Type getType() { return type; }
+
+    /**
+     * @return the receipt of a {@link Type#RECEIPT_CREATED} event, else {@code null}
+     */
+    public Receipt getReceipt() { return receipt; }
+
+    /**
+     * @return the product's id, or -1 for a {@link Type#RECEIPT_CREATED} event
+     */
+    public int getProductId() { return productId; }
+
+    /**
+     * @return the product's stock right after the event
+     */
+    public int getQuantity() { return quantity; }
+
+    /**
+     * @return the units sold for {@link Type#STOCK_DECREMENTED}, or stocked for {@link Type#PRODUCT_STOCKED}
+     */
+    public int getChange() { return change; }
+
+    @Override
+    public String toString() {
+        return type == Type.RECEIPT_CREATED
+                ? type + " receipt=" + receipt.getNumber()
+                : type + " product=" + productId + " change=" + change + " quantity=" + quantity;
+    }
+}
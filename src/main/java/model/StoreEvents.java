@@ -0,0 +1,68 @@
+package model;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+
+/**
+ * Publishes a store's {@link StoreEvent}s. Every subscriber gets its own bounded buffer and is
+ * fed on the executor as fast as it {@link Flow.Subscription#request requests}. Tills never wait
+ * for a subscriber: when one's buffer is full, the event is dropped for that subscriber alone
+ * and counted in {@link #getDroppedCount()}, and the others still receive it. While nobody is
+ * subscribed, the store does not create events at all.
+ */
+public class StoreEvents implements Flow.Publisher<StoreEvent>, AutoCloseable {
+    private final SubmissionPublisher<StoreEvent> publisher;
+    private final LongAdder dropped = new LongAdder();
+    private final BiPredicate<Flow.Subscriber<? super StoreEvent>, StoreEvent> countDrop = (subscriber, event) -> {
+        dropped.increment();
+        return false;
+    };
+
+    public StoreEvents() {
+        this(ForkJoinPool.commonPool(), Flow.defaultBufferSize());
+    }
+
+    /**
+     * @param executor       delivers events to subscribers
+     * @param bufferCapacity events buffered per subscriber, rounded up to a power of two
+     */
+    public StoreEvents(Executor executor, int bufferCapacity) {
+        this.publisher = new SubmissionPublisher<>(executor, bufferCapacity);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super StoreEvent> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    boolean hasSubscribers() {
+        return publisher.hasSubscribers();
+    }
+
+    void publish(StoreEvent event) {
+        publisher.offer(event, countDrop);
+    }
+
+    public int getSubscriberCount() {
+        return publisher.getNumberOfSubscribers();
+    }
+
+    /**
+     * @return events not delivered because a subscriber's buffer was full, counted once per subscriber
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Completes every subscription once its buffered events are delivered; later events are discarded.
+     */
+    @Override
+    public void close() {
+        publisher.close();
+    }
+}
@@ -0,0 +1,278 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * The records a {@link Store} writes to its {@link persistence.StateLog}, and the snapshots
+ * written next to the log by {@link Store#checkpoint}.
+ * <p>
+ * A snapshot ({@code snapshot-<lsn>.snap}) holds the LSN replay starts from, the revenue and
+ * transaction count as of that LSN, the cashiers, and every product with its quantity and the
+ * LSN of the last stock record applied to it, followed by a CRC32 of all of it. Quantities are
+ * read after the cut, one lock stripe at a time, so a product may already include changes logged
+ * after it; replay skips stock records that are not newer than the product's own LSN.
+ */
+final class StoreState {
+    static final byte PRODUCT_STOCKED = 1;
+    static final byte CASHIER_REGISTERED = 2;
+    static final byte STOCK_SET = 3;
+    static final byte RECEIPT_ISSUED = 4;
+
+    /** A product that has never been changed through the log. */
+    static final long NO_LSN = -1;
+
+    private static final int SNAPSHOT_VERSION = 2;
+    private static final int SNAPSHOTS_KEPT = 2;
+    private static final byte FOOD = 0;
+    private static final byte NON_FOOD = 1;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private StoreState() {
+    }
+
+    static byte[] productStocked(Product product) {
+        return encode(out -> writeProduct(out, product, product.getQty()));
+    }
+
+    static byte[] cashierRegistered(Cashier cashier) {
+        return encode(out -> writeCashier(out, cashier));
+    }
+
+    /**
+     * @return a record setting the quantity of each of {@code products} to the matching entry of
+     * {@code quantities}; absolute quantities make replaying a record twice harmless
+     */
+    static byte[] stockSet(Product[] products, int[] quantities) {
+        ByteBuffer record = ByteBuffer.allocate(4 + 8 * products.length);
+        record.putInt(products.length);
+        for (int i = 0; i < products.length; i++) {
+            record.putInt(products[i].getId()).putInt(quantities[i]);
+        }
+        return record.array();
+    }
+
+    static Product readProduct(ByteBuffer record) throws IOException {
+        return readProduct(inputOf(record));
+    }
+
+    static Cashier readCashier(ByteBuffer record) throws IOException {
+        return readCashier(inputOf(record));
+    }
+
+    /**
+     * Writes {@code snapshot} beside its final name, forces it to disk and moves it into place,
+     * then deletes all but the newest few snapshots.
+     *
+     * @return the LSN the oldest snapshot still kept replays from; older log records are not
+     * needed. Until there is an older snapshot to fall back on, that is the start of the log.
+     */
+    static long writeSnapshot(Path directory, Snapshot snapshot) throws IOException {
+        Path target = directory.resolve(String.format("%s%016x%s", SNAPSHOT_PREFIX, snapshot.cutLsn, SNAPSHOT_SUFFIX));
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(snapshot.cutLsn);
+            out.writeLong(snapshot.revenueCents);
+            out.writeInt(snapshot.transactionCount);
+            out.writeInt(snapshot.cashiers.size());
+            for (Cashier cashier : snapshot.cashiers) {
+                writeCashier(out, cashier);
+            }
+            out.writeInt(snapshot.products.length);
+            for (int i = 0; i < snapshot.products.length; i++) {
+                writeProduct(out, snapshot.products[i], snapshot.quantities[i]);
+                out.writeLong(snapshot.productLsns[i]);
+            }
+            out.writeInt((int) checked.getChecksum().getValue());
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        List<Path> snapshots = listSnapshots(directory);
+        for (int i = 0; i < snapshots.size() - SNAPSHOTS_KEPT; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+        return snapshots.size() < SNAPSHOTS_KEPT ? 0 : cutOf(snapshots.get(snapshots.size() - SNAPSHOTS_KEPT));
+    }
+
+    /**
+     * @return the newest snapshot in {@code directory} that reads back intact, or null if there is none
+     */
+    static Snapshot readLatestSnapshot(Path directory) throws IOException {
+        List<Path> snapshots = listSnapshots(directory);
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            try {
+                return readSnapshot(snapshots.get(i));
+            } catch (StreamCorruptedException | EOFException e) {
+                // Torn or damaged; the one before it is still complete.
+            }
+        }
+        return null;
+    }
+
+    private static Snapshot readSnapshot(Path file) throws IOException {
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(file), 64 * 1024)) {
+            CheckedInputStream checked = new CheckedInputStream(stream, new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            int version = in.readInt();
+            if (version != SNAPSHOT_VERSION) {
+                throw new StreamCorruptedException("Unsupported snapshot version " + version + " in " + file);
+            }
+            long cutLsn = in.readLong();
+            long revenueCents = in.readLong();
+            int transactionCount = in.readInt();
+            int cashierCount = in.readInt();
+            List<Cashier> cashiers = new ArrayList<>(Math.max(0, Math.min(cashierCount, 1024)));
+            for (int i = 0; i < cashierCount; i++) {
+                cashiers.add(readCashier(in));
+            }
+            int productCount = in.readInt();
+            if (productCount < 0) {
+                throw new StreamCorruptedException("Invalid product count " + productCount + " in " + file);
+            }
+            Product[] products = new Product[productCount];
+            int[] quantities = new int[productCount];
+            long[] productLsns = new long[productCount];
+            for (int i = 0; i < productCount; i++) {
+                products[i] = readProduct(in);
+                quantities[i] = products[i].getQty();
+                productLsns[i] = in.readLong();
+            }
+            int expectedChecksum = (int) checked.getChecksum().getValue();
+            if (in.readInt() != expectedChecksum) {
+                throw new StreamCorruptedException("Snapshot checksum mismatch in " + file);
+            }
+            return new Snapshot(cutLsn, revenueCents, transactionCount, cashiers, products, quantities, productLsns);
+        }
+    }
+
+    private static List<Path> listSnapshots(Path directory) throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SNAPSHOT_PREFIX + "*" + SNAPSHOT_SUFFIX)) {
+            files.forEach(snapshots::add);
+        }
+        snapshots.sort((a, b) -> Long.compareUnsigned(cutOf(a), cutOf(b)));
+        return snapshots;
+    }
+
+    private static long cutOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseUnsignedLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()), 16);
+    }
+
+    private static void writeProduct(DataOutput out, Product product, int qty) throws IOException {
+        if (product instanceof FoodProduct) {
+            out.writeByte(FOOD);
+        } else if (product instanceof NonFoodProduct) {
+            out.writeByte(NON_FOOD);
+        } else {
+            throw new IllegalArgumentException("Unsupported product type " + product.getClass().getName());
+        }
+        out.writeInt(product.getId());
+        out.writeUTF(product.getName());
+        out.writeLong(product.getDeliveryPriceCents());
+        out.writeLong(product.getExpiryDate().toEpochDay());
+        out.writeInt(qty);
+    }
+
+    private static Product readProduct(DataInput in) throws IOException {
+        byte kind = in.readByte();
+        if (kind != FOOD && kind != NON_FOOD) {
+            throw new StreamCorruptedException("Unknown product kind " + kind);
+        }
+        int id = in.readInt();
+        String name = in.readUTF();
+        long deliveryPriceCents = in.readLong();
+        LocalDate expiryDate = LocalDate.ofEpochDay(in.readLong());
+        int qty = in.readInt();
+        return kind == FOOD
+                ? FoodProduct.ofCents(id, name, deliveryPriceCents, expiryDate, qty)
+                : NonFoodProduct.ofCents(id, name, deliveryPriceCents, expiryDate, qty);
+    }
+
+    private static void writeCashier(DataOutput out, Cashier cashier) throws IOException {
+        out.writeInt(cashier.getId());
+        out.writeUTF(cashier.getName());
+        out.writeLong(cashier.getSalaryCents());
+    }
+
+    private static Cashier readCashier(DataInput in) throws IOException {
+        return Cashier.ofCents(in.readInt(), in.readUTF(), in.readLong());
+    }
+
+    private static byte[] encode(RecordWriter writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static DataInputStream inputOf(ByteBuffer record) {
+        return new DataInputStream(new ByteArrayInputStream(
+                record.array(), record.arrayOffset() + record.position(), record.remaining()));
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutput out) throws IOException;
+    }
+
+    /**
+     * Store state as of {@link #cutLsn}; see the class comment for what that means per product.
+     */
+    static final class Snapshot {
+        final long cutLsn;
+        final long revenueCents;
+        final int transactionCount;
+        final List<Cashier> cashiers;
+        final Product[] products;
+        final int[] quantities;
+        final long[] productLsns;
+
+        Snapshot(long cutLsn, long revenueCents, int transactionCount, List<Cashier> cashiers,
+                 Product[] products, int[] quantities, long[] productLsns) {
+            this.cutLsn = cutLsn;
+            this.revenueCents = revenueCents;
+            this.transactionCount = transactionCount;
+            this.cashiers = cashiers;
+            this.products = products;
+            this.quantities = quantities;
+            this.productLsns = productLsns;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package persistence;
+
+import model.Receipt;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Moves receipt writing off the checkout thread. Receipts are queued in a bounded buffer and a
+ * background writer drains them in batches, so one sink flush commits every receipt that arrived
+ * while the previous batch was being written.
+ * <p>
+ * When the buffer is full, {@link #persist} blocks until the writer catches up, which slows
+ * checkout down to the speed of the disk instead of letting the backlog grow without bound.
+ */
+public class AsyncReceiptPersister implements ReceiptPersister {
+    private static final PendingReceipt SHUTDOWN = new PendingReceipt(null);
+
+    private final ReceiptSink sink;
+    private final BlockingQueue<PendingReceipt> queue;
+    private final int maxBatchSize;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    public AsyncReceiptPersister(ReceiptSink sink, int queueCapacity, int maxBatchSize) {
+        if (queueCapacity < 1 || maxBatchSize < 1) {
+            throw new IllegalArgumentException("Queue capacity and batch size must be positive.");
+        }
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.writer = new Thread(this::drainLoop, "receipt-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public CompletableFuture<Receipt> persist(Receipt receipt) throws IOException {
+        if (closed) {
+            throw new IOException("Receipt persister is closed.");
+        }
+        PendingReceipt pending = new PendingReceipt(receipt);
+        try {
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for space in the receipt queue.");
+        }
+        return pending.durable;
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    private void drainLoop() {
+        List<PendingReceipt> batch = new ArrayList<>(maxBatchSize);
+        List<Receipt> receipts = new ArrayList<>(maxBatchSize);
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, maxBatchSize - 1);
+
+            for (PendingReceipt pending : batch) {
+                if (pending == SHUTDOWN) {
+                    running = false;
+                } else {
+                    receipts.add(pending.receipt);
+                }
+            }
+            commit(batch, receipts);
+            batch.clear();
+            receipts.clear();
+        }
+    }
+
+    private void commit(List<PendingReceipt> batch, List<Receipt> receipts) {
+        if (receipts.isEmpty()) {
+            return;
+        }
+        Throwable failure = null;
+        try {
+            sink.write(receipts);
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+        }
+        for (PendingReceipt pending : batch) {
+            if (pending == SHUTDOWN) {
+                continue;
+            }
+            if (failure == null) {
+                pending.durable.complete(pending.receipt);
+            } else {
+                pending.durable.completeExceptionally(failure);
+            }
+        }
+    }
+
+    /**
+     * Writes everything queued so far, stops the writer and closes the sink.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            queue.put(SHUTDOWN);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while flushing queued receipts.");
+        }
+
+        // A till that passed the closed check just before close() may have queued behind the marker.
+        PendingReceipt straggler;
+        while ((straggler = queue.poll()) != null) {
+            straggler.durable.completeExceptionally(new IOException("Receipt persister is closed."));
+        }
+        sink.close();
+    }
+
+    private static final class PendingReceipt {
+        final Receipt receipt;
+        final CompletableFuture<Receipt> durable = new CompletableFuture<>();
+
+        PendingReceipt(Receipt receipt) {
+            this.receipt = receipt;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package persistence;
+
+import model.Receipt;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Writes each receipt on the calling thread before returning.
+ */
+public class DirectReceiptPersister implements ReceiptPersister {
+    private final ReceiptSink sink;
+
+    public DirectReceiptPersister(ReceiptSink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public CompletableFuture<Receipt> persist(Receipt receipt) throws IOException {
+        sink.write(Collections.singletonList(receipt));
+        return CompletableFuture.completedFuture(receipt);
+    }
+
+    /**
+     * Writes all of {@code receipts} with a single sink call.
+     */
+    @Override
+    public List<CompletableFuture<Receipt>> persistAll(List<Receipt> receipts) throws IOException {
+        sink.write(receipts);
+        List<CompletableFuture<Receipt>> durable = new ArrayList<>(receipts.size());
+        for (Receipt receipt : receipts) {
+            durable.add(CompletableFuture.completedFuture(receipt));
+        }
+        return durable;
+    }
+
+    @Override
+    public void close() throws IOException {
+        sink.close();
+    }
+}
@@ -0,0 +1,61 @@
+package persistence;
+
+import metrics.CheckoutMetrics;
+import model.Receipt;
+import model.ReceiptRenderer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Writes every receipt as its own {@code receipt-N.txt} and {@code receipt-N.ser} pair in the
+ * working directory. With text rendering deferred, only the {@code .ser} file is written and
+ * the text receipt is rendered when it is printed, through {@link Receipt#saveToFile()}.
+ */
+public class FileReceiptSink implements ReceiptSink {
+    private final CheckoutMetrics metrics;
+    private final boolean renderText;
+
+    public FileReceiptSink() {
+        this(CheckoutMetrics.disabled());
+    }
+
+    /**
+     * @param metrics times every {@code saveToFile} and {@code serialize} call and counts the
+     *                bytes of the files they write
+     */
+    public FileReceiptSink(CheckoutMetrics metrics) {
+        this(metrics, true);
+    }
+
+    /**
+     * @param renderText false to leave the text receipt to whoever prints it
+     */
+    public FileReceiptSink(CheckoutMetrics metrics, boolean renderText) {
+        this.metrics = metrics;
+        this.renderText = renderText;
+    }
+
+    @Override
+    public void write(List<Receipt> receipts) throws IOException {
+        ReceiptRenderer renderer = ReceiptRenderer.forCurrentThread();
+        for (Receipt receipt : receipts) {
+            long bytes = 0;
+            if (renderText) {
+                long start = metrics.startTimer();
+                bytes += renderer.write(receipt, Path.of("receipt-" + receipt.getNumber() + ".txt"));
+                metrics.recordSince(CheckoutMetrics.Phase.SAVE_TO_FILE, start);
+            }
+
+            long start = metrics.startTimer();
+            receipt.serialize();
+            metrics.recordSince(CheckoutMetrics.Phase.SERIALIZE, start);
+
+            if (metrics.isEnabled()) {
+                metrics.recordBytesWritten(bytes + Files.size(Path.of("receipt-" + receipt.getNumber() + ".ser")));
+            }
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package persistence;
+
+import exception.InvalidReceiptException;
+import model.Cashier;
+import model.Receipt;
+import model.SaleItem;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary encoding of a {@link Receipt}, used instead of Java serialization.
+ * <p>
+ * Format version 3, in order: the version byte, receipt number, issue time (epoch second and
+ * nanos), cashier (id, name, salary), the item count, then per item the product id and name,
+ * the sold quantity and unit price, and finally the total. Integers are varints, zigzag-encoded
+ * where they can be negative. Money is a varint count of minor units, as held by the model.
+ * Versions 1 and 2 are still decoded: both also wrote the product's kind, delivery price, expiry
+ * date and stock after its name, which are skipped, and version 1 counted money in
+ * ten-thousandths. Strings are written once per receipt as UTF-8 and referenced by index after
+ * that, so a cashier or product name repeated across items costs a single byte. A missing name
+ * is written as "null", as the text receipt prints it.
+ * <p>
+ * An instance reuses its buffer and string table between calls and is not thread-safe.
+ */
+public class ReceiptCodec {
+    public static final byte VERSION = 3;
+
+    private static final byte VERSION_PRODUCT_STATE = 2;
+    private static final byte VERSION_TEN_THOUSANDTHS = 1;
+    private static final long TEN_THOUSANDTHS_PER_MINOR_UNIT = 100;
+    private static final byte FOOD = 0;
+    private static final byte NON_FOOD = 1;
+
+    private byte[] buffer = new byte[256];
+    private int length;
+    private String[] strings = new String[16];
+    private int stringCount;
+
+    /**
+     * Encodes {@code receipt} into this codec's buffer, replacing its previous contents.
+     *
+     * @return the number of bytes written, readable from {@link #array()}
+     */
+    public int encode(Receipt receipt) {
+        length = 0;
+        stringCount = 0;
+
+        writeByte(VERSION);
+        writeVarInt(receipt.getNumber());
+        LocalDateTime dateTime = receipt.getDateTime();
+        writeVarLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+        writeVarInt(dateTime.getNano());
+
+        Cashier cashier = receipt.getCashier();
+        writeVarInt(cashier.getId());
+        writeString(cashier.getName());
+        writeMoney(cashier.getSalaryCents());
+
+        int itemCount = receipt.getItemCount();
+        writeUnsignedVarLong(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            SaleItem item = receipt.getItem(i);
+            writeVarInt(item.getProductId());
+            writeString(item.getProductName());
+            writeVarInt(item.getQty());
+            writeMoney(item.getUnitPriceCents());
+        }
+        writeMoney(receipt.getTotalAmountCents());
+        Arrays.fill(strings, 0, stringCount, null);
+        return length;
+    }
+
+    /**
+     * @return the buffer holding the last {@link #encode} result in its first bytes
+     */
+    public byte[] array() {
+        return buffer;
+    }
+
+    public byte[] toByteArray(Receipt receipt) {
+        // encode may replace the buffer, so it must run before the buffer is read.
+        int encodedLength = encode(receipt);
+        return Arrays.copyOf(buffer, encodedLength);
+    }
+
+    /**
+     * Decodes one receipt from all of {@code in}'s remaining bytes.
+     *
+     * @throws StreamCorruptedException if the record is cut short, malformed or followed by
+     *                                  more bytes
+     */
+    public Receipt decode(ByteBuffer in) throws IOException {
+        stringCount = 0;
+        try {
+            byte version = in.get();
+            if (version != VERSION && version != VERSION_PRODUCT_STATE && version != VERSION_TEN_THOUSANDTHS) {
+                throw new StreamCorruptedException("Unsupported receipt format version " + version);
+            }
+            boolean productState = version != VERSION;
+            long moneyDivisor = version == VERSION_TEN_THOUSANDTHS ? TEN_THOUSANDTHS_PER_MINOR_UNIT : 1;
+            int number = readVarInt(in);
+            long epochSecond = readVarLong(in);
+            LocalDateTime dateTime = LocalDateTime.ofEpochSecond(epochSecond, readVarInt(in), ZoneOffset.UTC);
+            Cashier cashier = Cashier.ofCents(readVarInt(in), readString(in), readMoney(in, moneyDivisor));
+
+            long itemCount = readUnsignedVarLong(in);
+            if (itemCount < 0 || itemCount > in.remaining()) {
+                throw new StreamCorruptedException("Invalid receipt item count " + itemCount);
+            }
+            List<SaleItem> items = new ArrayList<>((int) itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                if (productState) {
+                    byte kind = in.get();
+                    if (kind != FOOD && kind != NON_FOOD) {
+                        throw new StreamCorruptedException("Unknown product kind " + kind);
+                    }
+                }
+                int productId = readVarInt(in);
+                String name = readString(in);
+                if (productState) {
+                    readMoney(in, moneyDivisor); // delivery price
+                    readVarLong(in); // expiry epoch day
+                    readVarInt(in); // stock
+                }
+                items.add(SaleItem.ofCents(productId, name, readVarInt(in), readMoney(in, moneyDivisor)));
+            }
+            long total = readMoney(in, moneyDivisor);
+            if (in.hasRemaining()) {
+                throw new StreamCorruptedException(in.remaining() + " trailing bytes after receipt " + number);
+            }
+            return Receipt.restoreCents(number, cashier, dateTime, items, total);
+        } catch (InvalidReceiptException | RuntimeException e) {
+            StreamCorruptedException corrupt = new StreamCorruptedException("Malformed receipt record");
+            corrupt.initCause(e);
+            throw corrupt;
+        } finally {
+            Arrays.fill(strings, 0, stringCount, null);
+        }
+    }
+
+    private void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) value;
+    }
+
+    private void writeVarInt(int value) {
+        writeVarLong(value);
+    }
+
+    private void writeVarLong(long value) {
+        writeUnsignedVarLong((value << 1) ^ (value >> 63));
+    }
+
+    private void writeUnsignedVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[length++] = (byte) value;
+    }
+
+    private void writeMoney(long minorUnits) {
+        writeVarLong(minorUnits);
+    }
+
+    private void writeString(String value) {
+        if (value == null) {
+            value = "null";
+        }
+        for (int i = 0; i < stringCount; i++) {
+            if (strings[i].equals(value)) {
+                writeUnsignedVarLong(((long) i << 1) | 1);
+                return;
+            }
+        }
+        remember(value);
+
+        int chars = value.length();
+        int utf8Length = 0;
+        for (int i = 0; i < chars; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                utf8Length += 1;
+            } else if (c < 0x800) {
+                utf8Length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(value.charAt(i + 1))) {
+                utf8Length += 4;
+                i++;
+            } else {
+                utf8Length += 3;
+            }
+        }
+        writeUnsignedVarLong((long) utf8Length << 1);
+
+        ensureCapacity(utf8Length);
+        for (int i = 0; i < chars; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer[length++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[length++] = (byte) (0xC0 | (c >> 6));
+                buffer[length++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[length++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                // Unpaired surrogates are written as U+FFFD, as String.getBytes would.
+                int ch = Character.isSurrogate(c) ? 0xFFFD : c;
+                buffer[length++] = (byte) (0xE0 | (ch >> 12));
+                buffer[length++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (ch & 0x3F));
+            }
+        }
+    }
+
+    private void remember(String value) {
+        if (stringCount == strings.length) {
+            strings = Arrays.copyOf(strings, stringCount << 1);
+        }
+        strings[stringCount++] = value;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, length + extra));
+        }
+    }
+
+    private static int readVarInt(ByteBuffer in) throws StreamCorruptedException {
+        long value = readVarLong(in);
+        if (value != (int) value) {
+            throw new StreamCorruptedException("Varint out of int range");
+        }
+        return (int) value;
+    }
+
+    private static long readVarLong(ByteBuffer in) throws StreamCorruptedException {
+        long zigzag = readUnsignedVarLong(in);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private static long readUnsignedVarLong(ByteBuffer in) throws StreamCorruptedException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Varint is too long");
+    }
+
+    private static long readMoney(ByteBuffer in, long divisor) throws StreamCorruptedException {
+        return Math.floorDiv(readVarLong(in) + divisor / 2, divisor);
+    }
+
+    private String readString(ByteBuffer in) throws StreamCorruptedException {
+        long tag = readUnsignedVarLong(in);
+        if ((tag & 1) == 1) {
+            long index = tag >>> 1;
+            if (index >= stringCount) {
+                throw new StreamCorruptedException("Unknown string reference " + index);
+            }
+            return strings[(int) index];
+        }
+        long byteLength = tag >>> 1;
+        if (byteLength > in.remaining()) {
+            throw new StreamCorruptedException("String length " + byteLength + " exceeds record");
+        }
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), (int) byteLength, StandardCharsets.UTF_8);
+            in.position(in.position() + (int) byteLength);
+        } else {
+            byte[] bytes = new byte[(int) byteLength];
+            in.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        remember(value);
+        return value;
+    }
+}
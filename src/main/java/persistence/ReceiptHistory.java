@@ -0,0 +1,248 @@
+package persistence;
+
+import model.Receipt;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The receipts a store has issued, oldest first, with only the most recent ones kept in memory.
+ * <p>
+ * Once more than {@code hotCapacity} receipts are held, the oldest are moved to a
+ * {@link ReceiptJournal} a batch at a time and only their numbers stay in memory. Receipts the
+ * journal already holds are not written again, so sharing the journal the store persists to
+ * makes spilling free; a receipt still queued for that journal when it is spilled is written by
+ * the spill, and the journal then skips it when the queue reaches it. Spilled receipts read back
+ * by number are kept in a small LRU cache.
+ * <p>
+ * A spill that fails leaves its receipts in memory to be retried on the next add, and is counted
+ * in {@link #getSpillFailureCount()}.
+ * <p>
+ * Safe for concurrent use. Spilling is done by whichever till first notices the window is full;
+ * the others carry on. Iteration is lazy and weakly consistent: it sees every receipt added
+ * before it started unless that receipt is spilled while the iteration is under way.
+ */
+public class ReceiptHistory implements Iterable<Receipt> {
+    public static final int SPILL_BATCH = 256;
+
+    private final int hotCapacity;
+    private final long spillThreshold;
+    private final ReceiptJournal journal;
+    private final Map<Integer, Receipt> hotByNumber = new ConcurrentHashMap<>();
+    private final Queue<Receipt> hotInOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger hotCount = new AtomicInteger();
+    private final ReentrantLock spillLock = new ReentrantLock();
+    private final AtomicLong spillFailures = new AtomicLong();
+    private volatile IOException lastSpillFailure;
+    private final ReadCache readCache;
+    // Written only while holding spillLock: the array first, then the count.
+    private volatile int[] spilledNumbers = new int[64];
+    private volatile int spilledCount;
+
+    /**
+     * @param hotCapacity  receipts kept in memory before the oldest are spilled
+     * @param journal      where spilled receipts go
+     * @param readCacheSize spilled receipts kept in memory after being read back by number
+     */
+    public ReceiptHistory(int hotCapacity, ReceiptJournal journal, int readCacheSize) {
+        this(hotCapacity, Objects.requireNonNull(journal, "journal"), readCacheSize, (long) hotCapacity + SPILL_BATCH);
+    }
+
+    private ReceiptHistory(int hotCapacity, ReceiptJournal journal, int readCacheSize, long spillThreshold) {
+        if (hotCapacity < 0 || readCacheSize < 0) {
+            throw new IllegalArgumentException("Capacities cannot be negative.");
+        }
+        this.hotCapacity = hotCapacity;
+        this.spillThreshold = spillThreshold;
+        this.journal = journal;
+        this.readCache = new ReadCache(readCacheSize);
+    }
+
+    /**
+     * @return a history that keeps every receipt in memory
+     */
+    public static ReceiptHistory unbounded() {
+        return new ReceiptHistory(Integer.MAX_VALUE, null, 0, Long.MAX_VALUE);
+    }
+
+    public void add(Receipt receipt) {
+        hotByNumber.put(receipt.getNumber(), receipt);
+        hotInOrder.add(receipt);
+        if (hotCount.incrementAndGet() >= spillThreshold && spillLock.tryLock()) {
+            try {
+                spill();
+            } catch (IOException e) {
+                // The receipts stay in memory and the next add tries again.
+                lastSpillFailure = e;
+                spillFailures.incrementAndGet();
+            } finally {
+                spillLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @throws FileNotFoundException if no receipt with that number was added
+     */
+    public Receipt get(int number) throws IOException, ClassNotFoundException {
+        Receipt receipt = hotByNumber.get(number);
+        if (receipt != null) {
+            return receipt;
+        }
+        receipt = readCache.get(number);
+        if (receipt != null) {
+            return receipt;
+        }
+        receipt = readSpilled(number);
+        readCache.put(number, receipt);
+        return receipt;
+    }
+
+    public int size() {
+        return spilledCount + hotCount.get();
+    }
+
+    public int getHotCount() {
+        return hotCount.get();
+    }
+
+    /**
+     * @return how many spills have failed so far
+     */
+    public long getSpillFailureCount() {
+        return spillFailures.get();
+    }
+
+    /**
+     * @return why the most recent failed spill failed, or null if none has
+     */
+    public IOException getLastSpillFailure() {
+        return lastSpillFailure;
+    }
+
+    /**
+     * Reads spilled receipts back from the journal one at a time. Receipts read this way do not
+     * displace anything from the read cache.
+     *
+     * @throws UncheckedIOException from {@code next()} if a spilled receipt cannot be read
+     */
+    @Override
+    public Iterator<Receipt> iterator() {
+        int spilled = spilledCount;
+        int[] numbers = spilledNumbers;
+        Iterator<Receipt> hot = hotInOrder.iterator();
+        return new Iterator<>() {
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                return position < spilled || hot.hasNext();
+            }
+
+            @Override
+            public Receipt next() {
+                if (position < spilled) {
+                    int number = numbers[position++];
+                    Receipt cached = readCache.get(number);
+                    if (cached != null) {
+                        return cached;
+                    }
+                    try {
+                        return readSpilled(number);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } catch (ClassNotFoundException e) {
+                        throw new UncheckedIOException(new IOException(e));
+                    }
+                }
+                if (!hot.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return hot.next();
+            }
+        };
+    }
+
+    private Receipt readSpilled(int number) throws IOException, ClassNotFoundException {
+        if (journal == null) {
+            throw new FileNotFoundException("Receipt " + number + " is not in the history.");
+        }
+        return journal.read(number);
+    }
+
+    private void spill() throws IOException {
+        int excess = hotCount.get() - hotCapacity;
+        List<Receipt> batch = new ArrayList<>(excess);
+        Iterator<Receipt> oldest = hotInOrder.iterator();
+        while (batch.size() < excess && oldest.hasNext()) {
+            batch.add(oldest.next());
+        }
+        List<Receipt> unwritten = new ArrayList<>(batch.size());
+        for (Receipt receipt : batch) {
+            if (!journal.contains(receipt.getNumber())) {
+                unwritten.add(receipt);
+            }
+        }
+        if (!unwritten.isEmpty()) {
+            journal.write(unwritten);
+        }
+
+        int[] numbers = spilledNumbers;
+        int count = spilledCount;
+        if (count + batch.size() > numbers.length) {
+            numbers = Arrays.copyOf(numbers, Math.max(numbers.length << 1, count + batch.size()));
+        }
+        for (Receipt receipt : batch) {
+            numbers[count++] = receipt.getNumber();
+        }
+        spilledNumbers = numbers;
+        spilledCount = count;
+
+        // Only the spiller removes from the head, so it still holds exactly this batch.
+        for (Receipt receipt : batch) {
+            hotInOrder.poll();
+            hotByNumber.remove(receipt.getNumber());
+        }
+        hotCount.addAndGet(-batch.size());
+    }
+
+    private static final class ReadCache {
+        private final int capacity;
+        private final LinkedHashMap<Integer, Receipt> entries;
+
+        ReadCache(int capacity) {
+            this.capacity = capacity;
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, Receipt> eldest) {
+                    return size() > ReadCache.this.capacity;
+                }
+            };
+        }
+
+        synchronized Receipt get(int number) {
+            return entries.get(number);
+        }
+
+        synchronized void put(int number, Receipt receipt) {
+            if (capacity > 0) {
+                entries.put(number, receipt);
+            }
+        }
+    }
+}
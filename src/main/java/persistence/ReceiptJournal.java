@@ -0,0 +1,543 @@
+package persistence;
+
+import metrics.CheckoutMetrics;
+import model.Receipt;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only receipt store. Receipts are written as length-prefixed records into rolling
+ * segment files ({@code receipts-N.log}) instead of one file pair per receipt, and every record
+ * gets an entry in the segment's offset index ({@code receipts-N.idx}), so reading a receipt
+ * back is a single positioned read.
+ * <p>
+ * Record layout: payload length, receipt number and CRC32 of the payload (one int each),
+ * followed by the payload, which is a {@link ReceiptCodec} encoding. Records written by Java
+ * serialization (recognisable by the stream magic) are still readable. Index entries are the receipt number (int) and record offset (long).
+ * The log is forced once per {@link #write} batch; the index is not forced, because on
+ * {@link #open} any records past the last indexed one are recovered by scanning the log, and a
+ * torn record at the end of the log is cut off.
+ */
+public class ReceiptJournal implements ReceiptSink {
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    private static final int HEADER_BYTES = 12;
+    private static final int INDEX_ENTRY_BYTES = 12;
+    private static final String SEGMENT_PREFIX = "receipts-";
+    private static final byte JAVA_SERIALIZATION_MAGIC = (byte) 0xAC;
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final CheckoutMetrics metrics;
+    private final List<Segment> segments = new ArrayList<>();
+    private final ReceiptOffsetIndex offsets = new ReceiptOffsetIndex();
+    private final ReceiptCodec writeCodec = new ReceiptCodec();
+    private final CRC32 checksum = new CRC32();
+    private ByteBuffer batchBuffer = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer indexBuffer = ByteBuffer.allocate(4 * 1024);
+    private boolean closed;
+
+    private ReceiptJournal(Path directory, long maxSegmentBytes, CheckoutMetrics metrics) {
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.metrics = metrics;
+    }
+
+    public static ReceiptJournal open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Opens the journal in {@code directory}, creating it if needed, and rebuilds the in-memory
+     * offset index from the segment index files.
+     */
+    public static ReceiptJournal open(Path directory, long maxSegmentBytes) throws IOException {
+        return open(directory, maxSegmentBytes, CheckoutMetrics.disabled());
+    }
+
+    /**
+     * Like {@link #open(Path, long)}, additionally counting every log and index byte written
+     * into {@code metrics}.
+     */
+    public static ReceiptJournal open(Path directory, long maxSegmentBytes, CheckoutMetrics metrics)
+            throws IOException {
+        if (maxSegmentBytes <= HEADER_BYTES || maxSegmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segment size must leave room for a record and fit in one mapping.");
+        }
+        Files.createDirectories(directory);
+        ReceiptJournal journal = new ReceiptJournal(directory, maxSegmentBytes, metrics);
+        try {
+            journal.recover();
+        } catch (IOException e) {
+            journal.close();
+            throw e;
+        }
+        return journal;
+    }
+
+    private void recover() throws IOException {
+        List<Integer> sequences = new ArrayList<>();
+        try (DirectoryStream<Path> logs = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*.log")) {
+            for (Path log : logs) {
+                String name = log.getFileName().toString();
+                sequences.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - 4)));
+            }
+        }
+        sequences.sort(null);
+        for (int i = 0; i < sequences.size(); i++) {
+            if (sequences.get(i) != i) {
+                throw new IOException("Receipt journal segment " + i + " is missing in " + directory);
+            }
+            Segment segment = openSegment(i);
+            segments.add(segment);
+            recoverSegment(segment, i == sequences.size() - 1);
+        }
+        if (segments.isEmpty()) {
+            segments.add(openSegment(0));
+        }
+        for (int i = 0; i < segments.size() - 1; i++) {
+            segments.get(i).sealed = true;
+        }
+    }
+
+    private void recoverSegment(Segment segment, boolean last) throws IOException {
+        int ordinal = segments.size() - 1;
+        long logSize = segment.log.size();
+        long resumeAt = 0;
+
+        ByteBuffer entries = ByteBuffer.allocate((int) (segment.index.size() / INDEX_ENTRY_BYTES) * INDEX_ENTRY_BYTES);
+        readFully(segment.index, entries, 0);
+        entries.flip();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        long validEntries = 0;
+        while (entries.remaining() >= INDEX_ENTRY_BYTES) {
+            int number = entries.getInt();
+            long offset = entries.getLong();
+            if (offset + HEADER_BYTES > logSize) {
+                break;
+            }
+            header.clear();
+            readFully(segment.log, header, offset);
+            long end = offset + HEADER_BYTES + header.getInt(0);
+            if (end > logSize) {
+                break;
+            }
+            offsets.put(number, ReceiptOffsetIndex.location(ordinal, offset));
+            resumeAt = end;
+            validEntries++;
+        }
+        segment.index.truncate(validEntries * INDEX_ENTRY_BYTES);
+
+        // Records that reached the log but not the index are re-indexed; a torn tail is dropped.
+        ByteBuffer reindexed = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+        while (resumeAt + HEADER_BYTES <= logSize) {
+            header.clear();
+            readFully(segment.log, header, resumeAt);
+            int length = header.getInt(0);
+            int number = header.getInt(4);
+            if (length < 0 || resumeAt + HEADER_BYTES + length > logSize) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(segment.log, payload, resumeAt + HEADER_BYTES);
+            checksum.reset();
+            checksum.update(payload.array(), 0, length);
+            if ((int) checksum.getValue() != header.getInt(8)) {
+                break;
+            }
+            offsets.put(number, ReceiptOffsetIndex.location(ordinal, resumeAt));
+            reindexed.clear();
+            reindexed.putInt(number).putLong(resumeAt).flip();
+            segment.index.write(reindexed, segment.index.size());
+            resumeAt += HEADER_BYTES + length;
+        }
+        if (resumeAt < logSize) {
+            if (!last) {
+                throw new IOException("Receipt journal segment " + ordinal + " is corrupt at offset " + resumeAt);
+            }
+            segment.log.truncate(resumeAt);
+        }
+        segment.size = resumeAt;
+    }
+
+    /**
+     * Appends {@code receipts} to the active segment and forces it once for the whole batch.
+     * A receipt the journal already holds unchanged is skipped, so a receipt that reaches it both
+     * from a {@link ReceiptHistory} spill and from the persister is stored once.
+     *
+     * @throws IOException if a receipt reuses the number of a different journaled receipt, in
+     *                     which case nothing from the batch is written
+     */
+    @Override
+    public synchronized void write(List<Receipt> receipts) throws IOException {
+        ensureOpen();
+        batchBuffer.clear();
+        indexBuffer.clear();
+        Segment segment = segments.get(segments.size() - 1);
+        long batchStart = segment.size;
+        int[] numbers = new int[receipts.size()];
+        long[] recordOffsets = new long[receipts.size()];
+        int count = 0;
+
+        for (Receipt receipt : receipts) {
+            long existing = offsets.get(receipt.getNumber());
+            if (existing != ReceiptOffsetIndex.MISSING) {
+                checkSameAsJournaled(receipt, existing);
+                continue;
+            }
+            int length = writeCodec.encode(receipt);
+            byte[] payload = writeCodec.array();
+            checksum.reset();
+            checksum.update(payload, 0, length);
+
+            batchBuffer = ensureRemaining(batchBuffer, HEADER_BYTES + length);
+            numbers[count] = receipt.getNumber();
+            recordOffsets[count++] = batchBuffer.position();
+            batchBuffer.putInt(length).putInt(receipt.getNumber()).putInt((int) checksum.getValue()).put(payload, 0, length);
+        }
+        batchBuffer.flip();
+        if (count == 0) {
+            return;
+        }
+
+        if (segment.size > 0 && segment.size + batchBuffer.remaining() > maxSegmentBytes) {
+            segment = roll();
+            batchStart = 0;
+        }
+        writeFully(segment.log, batchBuffer, batchStart);
+        segment.log.force(false);
+        segment.size = batchStart + batchBuffer.limit();
+
+        int ordinal = segments.size() - 1;
+        indexBuffer = ensureRemaining(indexBuffer, count * INDEX_ENTRY_BYTES);
+        for (int i = 0; i < count; i++) {
+            long offset = batchStart + recordOffsets[i];
+            indexBuffer.putInt(numbers[i]).putLong(offset);
+            offsets.put(numbers[i], ReceiptOffsetIndex.location(ordinal, offset));
+        }
+        indexBuffer.flip();
+        writeFully(segment.index, indexBuffer, segment.index.size());
+        metrics.recordBytesWritten(batchBuffer.limit() + indexBuffer.limit());
+    }
+
+    private void checkSameAsJournaled(Receipt receipt, long location) throws IOException {
+        int number = receipt.getNumber();
+        Receipt journaled;
+        try {
+            journaled = decode(payloadAt(number, segments.get(ReceiptOffsetIndex.segmentOf(location)),
+                    ReceiptOffsetIndex.offsetOf(location)), new ReceiptCodec());
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+        // Compared in the current encoding, since older records may be Java-serialized.
+        int journaledLength = writeCodec.encode(journaled);
+        byte[] expected = Arrays.copyOf(writeCodec.array(), journaledLength);
+        int length = writeCodec.encode(receipt);
+        if (!Arrays.equals(expected, 0, expected.length, writeCodec.array(), 0, length)) {
+            throw new IOException("Receipt number " + number + " is already journaled for a different receipt in "
+                    + directory);
+        }
+    }
+
+    /**
+     * Reads receipt {@code number} back with a positioned read. Sealed segments are memory-mapped
+     * once and shared by all readers.
+     *
+     * @throws FileNotFoundException if no receipt with that number was journaled
+     */
+    public Receipt read(int number) throws IOException, ClassNotFoundException {
+        long location;
+        Segment segment;
+        synchronized (this) {
+            ensureOpen();
+            location = offsets.get(number);
+            if (location == ReceiptOffsetIndex.MISSING) {
+                throw new FileNotFoundException("Receipt " + number + " is not in the journal " + directory);
+            }
+            segment = segments.get(ReceiptOffsetIndex.segmentOf(location));
+        }
+        return decode(payloadAt(number, segment, ReceiptOffsetIndex.offsetOf(location)), new ReceiptCodec());
+    }
+
+    private static ByteBuffer payloadAt(int number, Segment segment, long offset) throws IOException {
+        ByteBuffer record;
+        if (segment.sealed) {
+            record = segment.mapped().duplicate();
+            record.position((int) offset);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(segment.log, header, offset);
+            int length = header.getInt(0);
+            record = ByteBuffer.allocate(HEADER_BYTES + length);
+            record.put(header.flip());
+            readFully(segment.log, record, offset + HEADER_BYTES);
+            record.flip();
+        }
+
+        int length = record.getInt();
+        record.getInt();
+        int expectedChecksum = record.getInt();
+        ByteBuffer payload = record.slice();
+        payload.limit(length);
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != expectedChecksum) {
+            throw new IOException("Corrupt journal record for receipt " + number);
+        }
+        return payload;
+    }
+
+    private static Receipt decode(ByteBuffer payload, ReceiptCodec codec) throws IOException, ClassNotFoundException {
+        int length = payload.remaining();
+        if (length > 0 && payload.get(payload.position()) == JAVA_SERIALIZATION_MAGIC) {
+            byte[] serialized = new byte[length];
+            payload.get(serialized);
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+                return (Receipt) in.readObject();
+            }
+        }
+        return codec.decode(payload);
+    }
+
+    /**
+     * Splits the journal as it is now into ranges of about {@code recordsPerRange} consecutive
+     * records each, which {@link #scan} can read independently and in parallel. Receipts
+     * journaled after this call are not in any range. The range boundaries are read from the
+     * segment index files, so splitting costs a few reads per range, not a pass over the log.
+     */
+    public List<Range> ranges(int recordsPerRange) throws IOException {
+        if (recordsPerRange <= 0) {
+            throw new IllegalArgumentException("A range must hold at least one record.");
+        }
+        List<Segment> current;
+        long[] sizes;
+        long[] recordCounts;
+        synchronized (this) {
+            ensureOpen();
+            current = new ArrayList<>(segments);
+            sizes = new long[current.size()];
+            recordCounts = new long[current.size()];
+            for (int i = 0; i < current.size(); i++) {
+                sizes[i] = current.get(i).size;
+                recordCounts[i] = current.get(i).index.size() / INDEX_ENTRY_BYTES;
+            }
+        }
+
+        List<Range> ranges = new ArrayList<>();
+        ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+        for (int ordinal = 0; ordinal < current.size(); ordinal++) {
+            long start = 0;
+            for (long record = recordsPerRange; record < recordCounts[ordinal]; record += recordsPerRange) {
+                entry.clear();
+                readFully(current.get(ordinal).index, entry, record * INDEX_ENTRY_BYTES);
+                long end = entry.getLong(4);
+                ranges.add(new Range(current.get(ordinal), ordinal, start, end));
+                start = end;
+            }
+            if (start < sizes[ordinal]) {
+                ranges.add(new Range(current.get(ordinal), ordinal, start, sizes[ordinal]));
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Decodes the receipts in {@code range} one at a time, oldest first, handing each to
+     * {@code visitor}; nothing is kept once the visitor returns. Safe to call for several ranges
+     * at once.
+     */
+    public void scan(Range range, Consumer<Receipt> visitor) throws IOException {
+        synchronized (this) {
+            ensureOpen();
+        }
+        Segment segment = range.segment;
+        ByteBuffer records;
+        long base;
+        if (segment.sealed) {
+            records = segment.mapped().duplicate();
+            base = 0;
+        } else {
+            // The active segment keeps growing, so only the part already written is mapped.
+            records = segment.log.map(FileChannel.MapMode.READ_ONLY, range.start, range.end - range.start);
+            base = range.start;
+        }
+
+        ReceiptCodec codec = new ReceiptCodec();
+        CRC32 crc = new CRC32();
+        long offset = range.start;
+        while (offset < range.end) {
+            int position = (int) (offset - base);
+            int length = records.getInt(position);
+            int number = records.getInt(position + 4);
+            int expectedChecksum = records.getInt(position + 8);
+            ByteBuffer payload = records.duplicate();
+            payload.limit(position + HEADER_BYTES + length).position(position + HEADER_BYTES);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != expectedChecksum) {
+                throw new IOException("Corrupt journal record for receipt " + number);
+            }
+            try {
+                visitor.accept(decode(payload, codec));
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Cannot decode journaled receipt " + number, e);
+            }
+            offset += HEADER_BYTES + length;
+        }
+    }
+
+    public synchronized boolean contains(int number) {
+        return offsets.get(number) != ReceiptOffsetIndex.MISSING;
+    }
+
+    public synchronized int size() {
+        return offsets.size();
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        IOException failure = null;
+        for (Segment segment : segments) {
+            try {
+                segment.log.close();
+                segment.index.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private Segment roll() throws IOException {
+        Segment current = segments.get(segments.size() - 1);
+        current.index.force(false);
+        current.sealed = true;
+        Segment next = openSegment(segments.size());
+        segments.add(next);
+        return next;
+    }
+
+    private Segment openSegment(int sequence) throws IOException {
+        String base = String.format("%s%08d", SEGMENT_PREFIX, sequence);
+        FileChannel log = FileChannel.open(directory.resolve(base + ".log"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel index = FileChannel.open(directory.resolve(base + ".idx"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(log, index);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Receipt journal " + directory + " is closed.");
+        }
+    }
+
+    private static ByteBuffer ensureRemaining(ByteBuffer buffer, int needed) {
+        if (buffer.remaining() >= needed) {
+            return buffer;
+        }
+        int capacity = Math.max(buffer.capacity() << 1, buffer.position() + needed);
+        ByteBuffer bigger = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        bigger.put(buffer);
+        return bigger;
+    }
+
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of journal file.");
+            }
+            position += read;
+        }
+    }
+
+    static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Consecutive records of one segment, as returned by {@link #ranges}.
+     */
+    public static final class Range {
+        private final Segment segment;
+        private final int ordinal;
+        private final long start;
+        private final long end;
+
+        private Range(Segment segment, int ordinal, long start, long end) {
+            this.segment = segment;
+            this.ordinal = ordinal;
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getByteCount() {
+            return end - start;
+        }
+
+        @Override
+        public String toString() {
+            return "segment " + ordinal + " [" + start + ", " + end + ")";
+        }
+    }
+
+    private static final class Segment {
+        final FileChannel log;
+        final FileChannel index;
+        volatile boolean sealed;
+        long size;
+        private volatile MappedByteBuffer mapped;
+
+        Segment(FileChannel log, FileChannel index) {
+            this.log = log;
+            this.index = index;
+        }
+
+        MappedByteBuffer mapped() throws IOException {
+            MappedByteBuffer buffer = mapped;
+            if (buffer == null) {
+                synchronized (this) {
+                    buffer = mapped;
+                    if (buffer == null) {
+                        buffer = log.map(FileChannel.MapMode.READ_ONLY, 0, log.size());
+                        mapped = buffer;
+                    }
+                }
+            }
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package persistence;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from receipt number to its packed journal location, kept in primitive
+ * arrays so that millions of entries cost two array slots each instead of boxed map nodes.
+ */
+final class ReceiptOffsetIndex {
+    static final long MISSING = -1L;
+    private static final int SEGMENT_SHIFT = 40;
+
+    private int[] numbers;
+    private long[] locations;
+    private int mask;
+    private int size;
+
+    ReceiptOffsetIndex() {
+        allocate(1024);
+    }
+
+    static long location(int segment, long offset) {
+        return ((long) segment << SEGMENT_SHIFT) | offset;
+    }
+
+    static int segmentOf(long location) {
+        return (int) (location >>> SEGMENT_SHIFT);
+    }
+
+    static long offsetOf(long location) {
+        return location & ((1L << SEGMENT_SHIFT) - 1);
+    }
+
+    long get(int number) {
+        int slot = mix(number) & mask;
+        while (locations[slot] != MISSING) {
+            if (numbers[slot] == number) {
+                return locations[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    /**
+     * Maps {@code number} to {@code location}, replacing an older location for the same number.
+     */
+    void put(int number, long location) {
+        if (size + 1 > numbers.length >> 1) {
+            resize(numbers.length << 1);
+        }
+        int slot = mix(number) & mask;
+        while (locations[slot] != MISSING) {
+            if (numbers[slot] == number) {
+                locations[slot] = location;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        numbers[slot] = number;
+        locations[slot] = location;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void resize(int capacity) {
+        int[] oldNumbers = numbers;
+        long[] oldLocations = locations;
+        allocate(capacity);
+        for (int i = 0; i < oldNumbers.length; i++) {
+            if (oldLocations[i] != MISSING) {
+                int slot = mix(oldNumbers[i]) & mask;
+                while (locations[slot] != MISSING) {
+                    slot = (slot + 1) & mask;
+                }
+                numbers[slot] = oldNumbers[i];
+                locations[slot] = oldLocations[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        numbers = new int[capacity];
+        locations = new long[capacity];
+        Arrays.fill(locations, MISSING);
+        mask = capacity - 1;
+    }
+
+    private static int mix(int number) {
+        int h = number * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,37 @@
+package persistence;
+
+import model.Receipt;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Hands receipts produced at checkout over to a {@link ReceiptSink}.
+ */
+public interface ReceiptPersister extends Closeable {
+    /**
+     * Accepts {@code receipt} for writing.
+     *
+     * @return a future completed with the receipt once it is durable, or exceptionally if the
+     * sink failed to write it
+     * @throws IOException if the receipt could not be accepted at all
+     */
+    CompletableFuture<Receipt> persist(Receipt receipt) throws IOException;
+
+    /**
+     * Accepts several receipts at once. By default they are handed to {@link #persist} one by one.
+     *
+     * @return one future per receipt, in the same order
+     * @throws IOException if the receipts could not be accepted
+     */
+    default List<CompletableFuture<Receipt>> persistAll(List<Receipt> receipts) throws IOException {
+        List<CompletableFuture<Receipt>> durable = new ArrayList<>(receipts.size());
+        for (Receipt receipt : receipts) {
+            durable.add(persist(receipt));
+        }
+        return durable;
+    }
+}
@@ -0,0 +1,195 @@
+package persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Hands out unique receipt numbers to any number of tills.
+ * <p>
+ * Numbers are drawn from a few lanes, each holding a block of {@code blockSize} consecutive
+ * numbers, so tills only meet on a shared counter once per block. A till takes the first lane no
+ * other till holds: a till working alone gets increasing numbers, and concurrent tills spread
+ * over the lanes. Blocks belong to lanes rather than threads, so a thread started per request
+ * does not claim a block of its own. Numbers are unique but not globally ordered, and the blocks
+ * left unfinished when the process stops leave gaps of at most one block per lane.
+ * <p>
+ * A sequence opened on a file never hands out a number until a ceiling above it has been forced
+ * to that file, so a restart continues above every number issued before a crash. The ceiling
+ * is raised {@link #RESERVED_BLOCKS} blocks at a time to keep syncs rare. The file is a fixed
+ * 32 bytes holding two checksummed copies written alternately; recovery reads both and keeps
+ * the higher valid one, so a torn write loses nothing and startup never scans receipts.
+ */
+public class ReceiptSequence implements Closeable {
+    public static final int DEFAULT_BLOCK_SIZE = 64;
+    public static final int RESERVED_BLOCKS = 64;
+
+    private static final int SLOT_BYTES = 16;
+    private static final long FIRST_NUMBER = 1;
+
+    private final FileChannel file;
+    private final int blockSize;
+    private final AtomicLong nextBlockStart;
+    private final Lane[] lanes;
+    private final ByteBuffer slotBuffer = ByteBuffer.allocate(SLOT_BYTES);
+    private volatile long durableCeiling;
+    private int nextSlot;
+    private boolean closed;
+
+    private ReceiptSequence(FileChannel file, int blockSize, long start, long durableCeiling, int nextSlot) {
+        this.file = file;
+        this.blockSize = blockSize;
+        this.nextBlockStart = new AtomicLong(start);
+        this.durableCeiling = durableCeiling;
+        this.nextSlot = nextSlot;
+        this.lanes = new Lane[Math.max(2, Runtime.getRuntime().availableProcessors() * 2)];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane();
+        }
+    }
+
+    /**
+     * @return a sequence starting at 1 that is not persisted anywhere
+     */
+    public static ReceiptSequence inMemory() {
+        return new ReceiptSequence(null, DEFAULT_BLOCK_SIZE, FIRST_NUMBER, Long.MAX_VALUE, 0);
+    }
+
+    public static ReceiptSequence open(Path file) throws IOException {
+        return open(file, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Opens the sequence persisted in {@code file}, creating it if needed. Numbering continues
+     * above the last ceiling recorded there.
+     */
+    public static ReceiptSequence open(Path file, int blockSize) throws IOException {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive.");
+        }
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer slots = ByteBuffer.allocate(2 * SLOT_BYTES);
+            while (slots.hasRemaining()) {
+                if (channel.read(slots, slots.position()) < 0) {
+                    break;
+                }
+            }
+            slots.flip();
+            long first = readSlot(slots, 0);
+            long second = readSlot(slots, SLOT_BYTES);
+            long ceiling = Math.max(FIRST_NUMBER, Math.max(first, second));
+            int nextSlot = first <= second ? 0 : 1;
+            return new ReceiptSequence(channel, blockSize, ceiling, ceiling, nextSlot);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return a receipt number no other call on this sequence, in this or any earlier run on the
+     * same file, has returned
+     * @throws IOException if a new ceiling could not be made durable
+     */
+    public int next() throws IOException {
+        Lane lane = acquireLane();
+        try {
+            if (lane.next == lane.end) {
+                long start = nextBlockStart.getAndAdd(blockSize);
+                long end = start + blockSize;
+                if (end - 1 > Integer.MAX_VALUE) {
+                    throw new IllegalStateException("Receipt numbers are exhausted.");
+                }
+                if (end > durableCeiling) {
+                    reserveThrough(end);
+                }
+                lane.next = start;
+                lane.end = end;
+            }
+            return (int) lane.next++;
+        } finally {
+            lane.lock.unlock();
+        }
+    }
+
+    /**
+     * @return the first lane no other till holds, locked; the first lane, once it frees up, if
+     * every lane is busy
+     */
+    private Lane acquireLane() {
+        for (Lane lane : lanes) {
+            if (lane.lock.tryLock()) {
+                return lane;
+            }
+        }
+        Lane lane = lanes[0];
+        lane.lock.lock();
+        return lane;
+    }
+
+    /**
+     * @return the number below which every number may already have been handed out
+     */
+    public long getDurableCeiling() {
+        return file == null ? nextBlockStart.get() : durableCeiling;
+    }
+
+    private synchronized void reserveThrough(long end) throws IOException {
+        if (end <= durableCeiling) {
+            return;
+        }
+        if (closed) {
+            throw new IOException("Receipt sequence is closed.");
+        }
+        long ceiling = end + (long) blockSize * (RESERVED_BLOCKS - 1);
+        CRC32 crc = new CRC32();
+        slotBuffer.clear();
+        slotBuffer.putLong(ceiling);
+        crc.update(slotBuffer.array(), 0, Long.BYTES);
+        slotBuffer.putInt((int) crc.getValue()).putInt(0).flip();
+        ReceiptJournal.writeFully(file, slotBuffer, (long) nextSlot * SLOT_BYTES);
+        file.force(false);
+        nextSlot ^= 1;
+        durableCeiling = ceiling;
+    }
+
+    private static long readSlot(ByteBuffer slots, int offset) {
+        if (slots.limit() < offset + SLOT_BYTES) {
+            return 0;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(slots.array(), offset, Long.BYTES);
+        if ((int) crc.getValue() != slots.getInt(offset + Long.BYTES)) {
+            return 0;
+        }
+        return slots.getLong(offset);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (file != null && !closed) {
+            closed = true;
+            file.close();
+        }
+    }
+
+    private static final class Lane {
+        final ReentrantLock lock = new ReentrantLock();
+        // Guarded by lock.
+        long next;
+        long end;
+    }
+}
@@ -0,0 +1,19 @@
+package persistence;
+
+import model.Receipt;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination for finished receipts. A sink writes a whole batch before returning, so a caller
+ * that hands it many receipts at once pays for a single flush.
+ */
+public interface ReceiptSink extends Closeable {
+    void write(List<Receipt> receipts) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,274 @@
+package persistence;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of opaque records, addressed by log sequence number (LSN): the byte position
+ * of a record in the log as a whole. LSNs only grow, so comparing two tells which record was
+ * appended first, and replaying from a remembered LSN visits exactly the records appended after
+ * it was taken.
+ * <p>
+ * Records are {@code [length][CRC32][type][payload]} in rolling segment files named after the LSN
+ * they start at ({@code state-<lsn>.log}). Every {@link #append} reaches the operating system
+ * before it returns, so a crashed process loses nothing; {@link #sync} forces the log to disk
+ * for power failures. On {@link #open} only the last segment is scanned, to cut off a torn
+ * record, so opening costs the same however long the log is.
+ */
+public class StateLog implements Closeable {
+    public static final long DEFAULT_SEGMENT_BYTES = 16L * 1024 * 1024;
+
+    private static final int HEADER_BYTES = 9;
+    private static final String SEGMENT_PREFIX = "state-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final long maxSegmentBytes;
+    private final List<Long> segmentBases = new ArrayList<>();
+    private final CRC32 checksum = new CRC32();
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    private FileChannel active;
+    private long activeBase;
+    private long endLsn;
+    private boolean closed;
+
+    private StateLog(Path directory, long maxSegmentBytes) {
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+    }
+
+    public static StateLog open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_BYTES);
+    }
+
+    public static StateLog open(Path directory, long maxSegmentBytes) throws IOException {
+        if (maxSegmentBytes <= HEADER_BYTES) {
+            throw new IllegalArgumentException("Segment size must leave room for a record.");
+        }
+        Files.createDirectories(directory);
+        StateLog log = new StateLog(directory, maxSegmentBytes);
+        try {
+            log.recover();
+        } catch (IOException e) {
+            log.close();
+            throw e;
+        }
+        return log;
+    }
+
+    private void recover() throws IOException {
+        try (DirectoryStream<Path> logs = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path log : logs) {
+                String name = log.getFileName().toString();
+                segmentBases.add(Long.parseUnsignedLong(
+                        name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()), 16));
+            }
+        }
+        segmentBases.sort(null);
+        for (int i = 0; i + 1 < segmentBases.size(); i++) {
+            long expectedEnd = segmentBases.get(i) + Files.size(segmentPath(segmentBases.get(i)));
+            if (expectedEnd != segmentBases.get(i + 1)) {
+                throw new IOException("State log segment at LSN " + segmentBases.get(i + 1) + " does not follow "
+                        + "the one before it in " + directory);
+            }
+        }
+        if (segmentBases.isEmpty()) {
+            segmentBases.add(0L);
+        }
+        activeBase = segmentBases.get(segmentBases.size() - 1);
+        active = FileChannel.open(segmentPath(activeBase),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long size = active.size();
+        long valid = 0;
+        ByteBuffer payload = ByteBuffer.allocate(256);
+        while (valid + HEADER_BYTES <= size) {
+            header.clear();
+            ReceiptJournal.readFully(active, header, valid);
+            int length = header.getInt(0);
+            if (length < 0 || valid + HEADER_BYTES + length > size) {
+                break;
+            }
+            if (payload.capacity() < length) {
+                payload = ByteBuffer.allocate(length);
+            }
+            payload.clear().limit(length);
+            ReceiptJournal.readFully(active, payload, valid + HEADER_BYTES);
+            checksum.reset();
+            checksum.update(header.get(8));
+            checksum.update(payload.array(), 0, length);
+            if ((int) checksum.getValue() != header.getInt(4)) {
+                break;
+            }
+            valid += HEADER_BYTES + length;
+        }
+        if (valid < size) {
+            active.truncate(valid);
+        }
+        endLsn = activeBase + valid;
+    }
+
+    /**
+     * Appends a record of the caller's {@code type} holding the first {@code length} bytes of
+     * {@code payload}.
+     *
+     * @return the record's LSN
+     */
+    public synchronized long append(byte type, byte[] payload, int length) throws IOException {
+        ensureOpen();
+        if (endLsn > activeBase && endLsn - activeBase + HEADER_BYTES + length > maxSegmentBytes) {
+            roll();
+        }
+        checksum.reset();
+        checksum.update(type);
+        checksum.update(payload, 0, length);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + length);
+        record.putInt(length).putInt((int) checksum.getValue()).put(type).put(payload, 0, length).flip();
+        long lsn = endLsn;
+        ReceiptJournal.writeFully(active, record, lsn - activeBase);
+        endLsn = lsn + HEADER_BYTES + length;
+        return lsn;
+    }
+
+    /**
+     * @return the LSN the next record will get
+     */
+    public synchronized long getEndLsn() {
+        return endLsn;
+    }
+
+    /**
+     * @return the LSN of the oldest record still kept
+     */
+    public synchronized long getStartLsn() {
+        return segmentBases.get(0);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Forces every record appended so far to disk.
+     */
+    public void sync() throws IOException {
+        FileChannel channel;
+        synchronized (this) {
+            ensureOpen();
+            channel = active;
+        }
+        // Sealed segments were forced when the log rolled past them.
+        channel.force(false);
+    }
+
+    /**
+     * Calls {@code handler} with every record from LSN {@code fromLsn} on, oldest first.
+     *
+     * @param fromLsn the LSN of a record, or the end LSN at some earlier moment
+     */
+    public void replay(long fromLsn, RecordHandler handler) throws IOException {
+        long end;
+        List<Long> bases;
+        synchronized (this) {
+            ensureOpen();
+            end = endLsn;
+            bases = new ArrayList<>(segmentBases);
+        }
+        if (fromLsn > end || fromLsn < bases.get(0)) {
+            throw new IOException("LSN " + fromLsn + " is outside the state log in " + directory);
+        }
+        long lsn = fromLsn;
+        for (int i = 0; i < bases.size() && lsn < end; i++) {
+            long base = bases.get(i);
+            long segmentEnd = i + 1 < bases.size() ? bases.get(i + 1) : end;
+            if (lsn >= segmentEnd) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(segmentPath(base), StandardOpenOption.READ)) {
+                channel.position(lsn - base);
+                InputStream stream = new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024);
+                DataInputStream in = new DataInputStream(stream);
+                while (lsn < segmentEnd) {
+                    int length = in.readInt();
+                    int expectedChecksum = in.readInt();
+                    byte type = in.readByte();
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    CRC32 crc = new CRC32();
+                    crc.update(type);
+                    crc.update(payload);
+                    if ((int) crc.getValue() != expectedChecksum) {
+                        throw new IOException("Corrupt state log record at LSN " + lsn + " in " + directory);
+                    }
+                    handler.onRecord(lsn, type, ByteBuffer.wrap(payload));
+                    lsn += HEADER_BYTES + length;
+                }
+            } catch (EOFException e) {
+                throw new IOException("State log ends inside the record at LSN " + lsn + " in " + directory, e);
+            }
+        }
+    }
+
+    /**
+     * Deletes the segments holding only records before {@code lsn}, once nothing will replay them.
+     */
+    public synchronized void discardBefore(long lsn) throws IOException {
+        ensureOpen();
+        while (segmentBases.size() > 1 && segmentBases.get(1) <= lsn) {
+            Files.deleteIfExists(segmentPath(segmentBases.remove(0)));
+        }
+    }
+
+    public synchronized int getSegmentCount() {
+        return segmentBases.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (active != null) {
+            active.close();
+        }
+    }
+
+    private void roll() throws IOException {
+        active.force(false);
+        active.close();
+        activeBase = endLsn;
+        segmentBases.add(activeBase);
+        active = FileChannel.open(segmentPath(activeBase),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private Path segmentPath(long base) {
+        return directory.resolve(String.format("%s%016x%s", SEGMENT_PREFIX, base, SEGMENT_SUFFIX));
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("State log " + directory + " is closed.");
+        }
+    }
+
+    @FunctionalInterface
+    public interface RecordHandler {
+        void onRecord(long lsn, byte type, ByteBuffer payload) throws IOException;
+    }
+}
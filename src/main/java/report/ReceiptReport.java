@@ -0,0 +1,22 @@
+package report;
+
+import model.Receipt;
+
+/**
+ * An aggregation over receipts that {@link ReportEngine} can run in parallel: every worker
+ * folds its share of the receipts into its own partial result, and partial results are merged
+ * pairwise until one is left. Memory use is that of the partial results, so a report should
+ * keep totals per key rather than the receipts themselves.
+ *
+ * @param <R> the partial and final result
+ */
+public interface ReceiptReport<R> {
+    R newPartial();
+
+    void accumulate(R partial, Receipt receipt);
+
+    /**
+     * Combines two partial results; may update and return one of them.
+     */
+    R merge(R left, R right);
+}
@@ -0,0 +1,84 @@
+package report;
+
+import persistence.ReceiptJournal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs {@link ReceiptReport}s over every receipt in a {@link ReceiptJournal} without loading
+ * them all. The journal is split into ranges of consecutive records; a fork-join task per range
+ * streams its receipts through {@link ReceiptReport#accumulate}, one decoded receipt at a time,
+ * and the partial results are merged as the tasks join. Receipts journaled while a report runs
+ * are not included.
+ */
+public class ReportEngine {
+    public static final int DEFAULT_RECORDS_PER_RANGE = 16 * 1024;
+
+    private final ForkJoinPool pool;
+    private final int recordsPerRange;
+
+    public ReportEngine() {
+        this(ForkJoinPool.commonPool(), DEFAULT_RECORDS_PER_RANGE);
+    }
+
+    /**
+     * @param recordsPerRange receipts streamed by one task; smaller ranges spread a small
+     *                        journal over more workers at the cost of more merges
+     */
+    public ReportEngine(ForkJoinPool pool, int recordsPerRange) {
+        this.pool = pool;
+        this.recordsPerRange = recordsPerRange;
+    }
+
+    public <R> R run(ReceiptJournal journal, ReceiptReport<R> report) throws IOException {
+        List<ReceiptJournal.Range> ranges = journal.ranges(recordsPerRange);
+        if (ranges.isEmpty()) {
+            return report.newPartial();
+        }
+        try {
+            return pool.invoke(new RangeTask<>(journal, report, ranges, 0, ranges.size()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class RangeTask<R> extends RecursiveTask<R> {
+        private static final long serialVersionUID = 1L;
+
+        private final ReceiptJournal journal;
+        private final ReceiptReport<R> report;
+        private final List<ReceiptJournal.Range> ranges;
+        private final int from;
+        private final int to;
+
+        RangeTask(ReceiptJournal journal, ReceiptReport<R> report, List<ReceiptJournal.Range> ranges, int from, int to) {
+            this.journal = journal;
+            this.report = report;
+            this.ranges = ranges;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected R compute() {
+            if (to - from == 1) {
+                R partial = report.newPartial();
+                try {
+                    journal.scan(ranges.get(from), receipt -> report.accumulate(partial, receipt));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return partial;
+            }
+            int middle = (from + to) >>> 1;
+            RangeTask<R> left = new RangeTask<>(journal, report, ranges, from, middle);
+            left.fork();
+            R right = new RangeTask<>(journal, report, ranges, middle, to).compute();
+            return report.merge(left.join(), right);
+        }
+    }
+}
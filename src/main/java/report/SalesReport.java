@@ -0,0 +1,75 @@
+package report;
+
+import model.Receipt;
+import model.SaleItem;
+
+import java.time.LocalDate;
+
+/**
+ * The built-in reports: receipts, units and revenue per cashier, per product and per day.
+ * Each keeps one {@link SalesTally.Totals} per cashier, product or day per worker, so memory
+ * grows with the number of keys and workers, never with the number of receipts.
+ */
+public final class SalesReport<K> implements ReceiptReport<SalesTally<K>> {
+    private final Tallier<K> tallier;
+
+    private SalesReport(Tallier<K> tallier) {
+        this.tallier = tallier;
+    }
+
+    /**
+     * @return totals keyed by cashier id
+     */
+    public static SalesReport<Integer> perCashier() {
+        return new SalesReport<>((receipt, tally) ->
+                tally.add(receipt.getCashier().getId(), unitsOn(receipt), receipt.getTotalAmountCents()));
+    }
+
+    /**
+     * @return totals keyed by product id, with the revenue of that product's lines only
+     */
+    public static SalesReport<Integer> perProduct() {
+        return new SalesReport<>((receipt, tally) -> {
+            for (int i = 0; i < receipt.getItemCount(); i++) {
+                SaleItem item = receipt.getItem(i);
+                tally.add(item.getProductId(), item.getQty(), item.getTotalCostCents());
+            }
+        });
+    }
+
+    /**
+     * @return totals keyed by the day the receipt was issued
+     */
+    public static SalesReport<LocalDate> perDay() {
+        return new SalesReport<>((receipt, tally) ->
+                tally.add(receipt.getDateTime().toLocalDate(), unitsOn(receipt), receipt.getTotalAmountCents()));
+    }
+
+    @Override
+    public SalesTally<K> newPartial() {
+        return new SalesTally<>();
+    }
+
+    @Override
+    public void accumulate(SalesTally<K> partial, Receipt receipt) {
+        tallier.tally(receipt, partial);
+    }
+
+    @Override
+    public SalesTally<K> merge(SalesTally<K> left, SalesTally<K> right) {
+        return left.size() >= right.size() ? left.mergeFrom(right) : right.mergeFrom(left);
+    }
+
+    private static long unitsOn(Receipt receipt) {
+        long units = 0;
+        for (int i = 0; i < receipt.getItemCount(); i++) {
+            units += receipt.getItem(i).getQty();
+        }
+        return units;
+    }
+
+    @FunctionalInterface
+    private interface Tallier<K> {
+        void tally(Receipt receipt, SalesTally<K> tally);
+    }
+}
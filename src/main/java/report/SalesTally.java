@@ -0,0 +1,83 @@
+package report;
+
+import model.Money;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Receipts, units and revenue per key, as produced by a {@link SalesReport}. Holds one entry
+ * per distinct key, however many receipts were counted.
+ */
+public final class SalesTally<K> {
+    private final Map<K, Totals> totals = new HashMap<>();
+
+    void add(K key, long units, long revenueCents) {
+        Totals entry = totals.get(key);
+        if (entry == null) {
+            entry = new Totals();
+            totals.put(key, entry);
+        }
+        entry.receipts++;
+        entry.units += units;
+        entry.revenueCents += revenueCents;
+    }
+
+    SalesTally<K> mergeFrom(SalesTally<K> other) {
+        other.totals.forEach((key, entry) -> totals.merge(key, entry, Totals::plus));
+        return this;
+    }
+
+    /**
+     * @return the totals for {@code key}, or null if no receipt had it
+     */
+    public Totals get(K key) {
+        return totals.get(key);
+    }
+
+    public Map<K, Totals> asMap() {
+        return Collections.unmodifiableMap(totals);
+    }
+
+    public int size() {
+        return totals.size();
+    }
+
+    /**
+     * One line per key, in key order.
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        new TreeMap<>(totals).forEach((key, entry) -> text.append(key).append(" - ").append(entry).append('\n'));
+        return text.toString();
+    }
+
+    public static final class Totals {
+        private long receipts;
+        private long units;
+        private long revenueCents;
+
+        /**
+         * @return the receipts counted under this key; for a product, the receipts it was sold on
+         */
+        public long getReceipts() { return receipts; }
+        public long getUnits() { return units; }
+        public double getRevenue() { return Money.toMajor(revenueCents); }
+        public long getRevenueCents() { return revenueCents; }
+
+        private Totals plus(Totals other) {
+            receipts += other.receipts;
+            units += other.units;
+            revenueCents += other.revenueCents;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "receipts=" + receipts + " units=" + units + " revenue=" + Money.format(revenueCents);
+        }
+    }
+}
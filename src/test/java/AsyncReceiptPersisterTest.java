@@ -0,0 +1,146 @@
+import exception.InvalidReceiptException;
+import model.*;
+import persistence.AsyncReceiptPersister;
+import persistence.ReceiptSink;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncReceiptPersisterTest {
+    private Cashier cashier;
+    private SaleItem item;
+
+    @BeforeEach
+    public void setUp() {
+        cashier = new Cashier(1, "Mariya", 1000);
+        item = new SaleItem(new FoodProduct(100, "Waffle", 1.00, LocalDate.now().plusDays(5), 10), 1, 1.30);
+    }
+
+    @Test
+    public void testReceiptsAreWrittenInBatches() throws Exception {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        ReceiptSink sink = receipts -> {
+            batchSizes.add(receipts.size());
+            firstBatchStarted.countDown();
+            await(releaseFirstBatch);
+        };
+
+        List<CompletableFuture<Receipt>> futures = new ArrayList<>();
+        try (AsyncReceiptPersister persister = new AsyncReceiptPersister(sink, 16, 8)) {
+            futures.add(persister.persist(newReceipt()));
+            assertTrue(firstBatchStarted.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 5; i++) {
+                futures.add(persister.persist(newReceipt()));
+            }
+            releaseFirstBatch.countDown();
+
+            for (CompletableFuture<Receipt> future : futures) {
+                assertNotNull(future.get(5, TimeUnit.SECONDS));
+            }
+        }
+
+        assertEquals(List.of(1, 5), batchSizes);
+    }
+
+    @Test
+    public void testFullQueueBlocksCheckout() throws Exception {
+        CountDownLatch releaseWriter = new CountDownLatch(1);
+        ReceiptSink sink = receipts -> await(releaseWriter);
+
+        try (AsyncReceiptPersister persister = new AsyncReceiptPersister(sink, 2, 1)) {
+            persister.persist(newReceipt());
+            while (persister.getQueuedCount() > 0) {
+                Thread.onSpinWait();
+            }
+            persister.persist(newReceipt());
+            persister.persist(newReceipt());
+
+            Thread blocked = new Thread(() -> {
+                try {
+                    persister.persist(newReceipt());
+                } catch (Exception e) {
+                    // surfaced through the thread state below
+                }
+            });
+            blocked.start();
+            blocked.join(200);
+            assertTrue(blocked.isAlive());
+
+            releaseWriter.countDown();
+            blocked.join(5000);
+            assertFalse(blocked.isAlive());
+        }
+    }
+
+    @Test
+    public void testSinkFailureCompletesFutureExceptionally() throws Exception {
+        ReceiptSink sink = receipts -> {
+            throw new IOException("disk full");
+        };
+
+        try (AsyncReceiptPersister persister = new AsyncReceiptPersister(sink, 4, 4)) {
+            CompletableFuture<Receipt> future = persister.persist(newReceipt());
+            ExecutionException exception = assertThrows(ExecutionException.class, () -> {
+                future.get(5, TimeUnit.SECONDS);
+            });
+            assertTrue(exception.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void testStoreCheckoutWithAsyncPersistence() throws Exception {
+        List<Receipt> written = Collections.synchronizedList(new ArrayList<>());
+        AsyncReceiptPersister persister = new AsyncReceiptPersister(written::addAll, 64, 16);
+        Store store = new Store(0.15, 3, persister);
+        store.registerCashier(cashier);
+        store.stockProduct(new NonFoodProduct(200, "Parfum", 5.00, LocalDate.now().plusDays(30), 5));
+
+        Map<Integer, Integer> basket = new HashMap<>();
+        basket.put(200, 2);
+        Receipt receipt = store.submitTransaction(cashier, basket).get(5, TimeUnit.SECONDS);
+        store.processTransaction(cashier, basket);
+        persister.close();
+
+        assertEquals(2, written.size());
+        assertSame(receipt, written.get(0));
+        assertEquals(2, store.getTotalTransactionCount());
+        assertEquals(1, store.findProductById(200).getQty());
+    }
+
+    @Test
+    public void testPersistAfterCloseIsRejected() throws Exception {
+        AsyncReceiptPersister persister = new AsyncReceiptPersister(receipts -> { }, 4, 4);
+        persister.close();
+
+        assertThrows(IOException.class, () -> {
+            persister.persist(newReceipt());
+        });
+    }
+
+    private Receipt newReceipt() throws InvalidReceiptException {
+        return new Receipt(cashier, Collections.singletonList(item));
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        }
+    }
+}
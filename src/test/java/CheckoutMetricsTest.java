@@ -0,0 +1,134 @@
+import exception.OutOfStockException;
+import metrics.CheckoutMetrics;
+import metrics.CheckoutMetrics.Phase;
+import metrics.HistogramSnapshot;
+import metrics.MetricsDumper;
+import metrics.MetricsSnapshot;
+import model.*;
+import persistence.DirectReceiptPersister;
+import persistence.ReceiptJournal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CheckoutMetricsTest {
+    private Cashier cashier;
+    private CheckoutMetrics metrics;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setUp() {
+        cashier = new Cashier(1, "Mariya", 1000);
+        metrics = new CheckoutMetrics();
+    }
+
+    @Test
+    public void testCheckoutIsMeasured() throws Exception {
+        try (ReceiptJournal journal = ReceiptJournal.open(tempDir.resolve("journal"), ReceiptJournal.DEFAULT_SEGMENT_BYTES, metrics)) {
+            Store store = new Store(0.15, 3, new DirectReceiptPersister(journal));
+            store.setMetrics(metrics);
+            store.registerCashier(cashier);
+            store.stockProduct(new FoodProduct(100, "Waffle", 1.00, LocalDate.now().plusDays(10), 10));
+
+            Map<Integer, Integer> basket = new HashMap<>();
+            basket.put(100, 4);
+            store.processTransaction(cashier, basket);
+            store.processTransaction(cashier, basket);
+            assertThrows(OutOfStockException.class, () -> store.processTransaction(cashier, basket));
+        }
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.getReceiptCount());
+        assertEquals(Map.of("OutOfStockException", 1L), snapshot.getRejectionsByType());
+        assertTrue(snapshot.getBytesWritten() > 0);
+        assertEquals(2, snapshot.getLatency(Phase.CHECKOUT).getCount());
+        assertEquals(3, snapshot.getLatency(Phase.LOOKUP).getCount());
+        assertEquals(3, snapshot.getLatency(Phase.PRICING).getCount());
+        assertEquals(2, snapshot.getLatency(Phase.RECEIPT_CONSTRUCTION).getCount());
+        assertEquals(0, snapshot.getLatency(Phase.SAVE_TO_FILE).getCount());
+    }
+
+    @Test
+    public void testBatchRecordsOneCheckoutPerSoldBasket() throws Exception {
+        Store store = new Store(0.15, 3, new DirectReceiptPersister(receipts -> { }));
+        store.setMetrics(metrics);
+        store.stockProduct(new FoodProduct(100, "Waffle", 1.00, LocalDate.now().plusDays(10), 10));
+
+        List<CheckoutResult> results = store.processBatch(List.of(
+                new BasketOrder(cashier, Map.of(100, 4)),
+                new BasketOrder(cashier, Map.of(100, 40)),
+                new BasketOrder(cashier, Map.of(100, 4))));
+
+        assertFalse(results.get(1).isAccepted());
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.getReceiptCount());
+        assertEquals(2, snapshot.getLatency(Phase.CHECKOUT).getCount());
+        assertEquals(Map.of("OutOfStockException", 1L), snapshot.getRejectionsByType());
+    }
+
+    @Test
+    public void testDisabledMetricsRecordNothing() throws Exception {
+        CheckoutMetrics disabled = CheckoutMetrics.disabled();
+        assertFalse(disabled.isEnabled());
+        disabled.recordSince(Phase.CHECKOUT, disabled.startTimer());
+        disabled.recordReceipt();
+        disabled.recordRejection(new IllegalStateException());
+
+        MetricsSnapshot snapshot = disabled.snapshot();
+        assertEquals(0, snapshot.getReceiptCount());
+        assertEquals(0, snapshot.getLatency(Phase.CHECKOUT).getCount());
+        assertTrue(snapshot.getRejectionsByType().isEmpty());
+    }
+
+    @Test
+    public void testPercentilesStayWithinBucketPrecision() {
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            metrics.recordSince(Phase.LOOKUP, System.nanoTime() - nanos);
+        }
+        HistogramSnapshot lookups = metrics.snapshot().getLatency(Phase.LOOKUP);
+
+        assertEquals(100_000, lookups.getCount());
+        assertTrue(lookups.getMaxNanos() >= 100_000);
+        long median = lookups.valueAtPercentile(50);
+        assertTrue(median >= 50_000 && median <= 50_000 * 1.07, "p50 was " + median);
+        assertTrue(lookups.valueAtPercentile(99) >= 99_000);
+    }
+
+    @Test
+    public void testDumperWritesSnapshotFile() throws Exception {
+        metrics.recordReceipt();
+        Path target = tempDir.resolve("metrics.txt");
+        try (MetricsDumper dumper = new MetricsDumper(metrics, target, 1, TimeUnit.HOURS)) {
+            dumper.dump();
+            assertTrue(Files.readString(target, StandardCharsets.UTF_8).contains("Receipts - 1"));
+        }
+        assertTrue(Files.exists(target));
+    }
+
+    @Test
+    public void testDumperCountsFailedDumps() throws Exception {
+        Path target = tempDir.resolve("missing").resolve("metrics.txt");
+        MetricsDumper dumper = new MetricsDumper(metrics, target, 5, TimeUnit.MILLISECONDS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (dumper.getFailureCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(dumper.getFailureCount() > 0);
+        assertNotNull(dumper.getLastFailure());
+        assertThrows(IOException.class, dumper::close);
+    }
+}
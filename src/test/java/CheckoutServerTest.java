@@ -0,0 +1,89 @@
+import app.CheckoutServer;
+import metrics.CheckoutMetrics;
+import model.*;
+import persistence.DirectReceiptPersister;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CheckoutServerTest {
+    private Store store;
+    private CheckoutServer server;
+    private HttpClient client;
+    private URI base;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        store = new Store(0.15, 3, new DirectReceiptPersister(receipts -> { }));
+        store.registerCashier(new Cashier(1, "Mariya", 1000));
+        store.stockProduct(new NonFoodProduct(200, "Parfum", 5.00, LocalDate.now().plusDays(30), 5));
+        store.stockProduct(new FoodProduct(300, "Old milk", 1.00, LocalDate.now().minusDays(1), 5));
+
+        CheckoutMetrics metrics = new CheckoutMetrics();
+        store.setMetrics(metrics);
+        server = new CheckoutServer(store, metrics, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+        client = HttpClient.newHttpClient();
+        base = URI.create("http://localhost:" + server.getAddress().getPort());
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    public void testCheckoutOverHttp() throws Exception {
+        HttpResponse<String> sold = post("/checkout?cashier=1", "200:2");
+        assertEquals(200, sold.statusCode());
+        assertTrue(sold.body().contains("total=15.00"), sold.body());
+        assertEquals(3, store.findProductById(200).getQty());
+
+        assertEquals(409, post("/checkout?cashier=1", "200:4").statusCode());
+        assertEquals(410, post("/checkout?cashier=1", "300:1").statusCode());
+        assertEquals(400, post("/checkout?cashier=1", "200=1").statusCode());
+        assertEquals(400, post("/checkout?cashier=9", "200:1").statusCode());
+
+        HttpResponse<String> report = client.send(HttpRequest.newBuilder(base.resolve("/report")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, report.statusCode());
+        assertTrue(report.body().contains("transactions=1"), report.body());
+
+        HttpResponse<String> metrics = client.send(HttpRequest.newBuilder(base.resolve("/metrics")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertTrue(metrics.body().contains("Receipts - 1"), metrics.body());
+    }
+
+    @Test
+    public void testRejectsQuantitiesThatAreNotPositive() throws Exception {
+        assertEquals(400, post("/checkout?cashier=1", "200:-5").statusCode());
+        assertEquals(400, post("/checkout?cashier=1", "200:0").statusCode());
+        assertEquals(5, store.findProductById(200).getQty());
+        assertEquals(0, store.getTotalTransactionCount());
+        assertEquals(0, store.computeTotalRevenueCents());
+    }
+
+    @Test
+    public void testCashierHiredAfterStartCanCheckOut() throws Exception {
+        assertEquals(400, post("/checkout?cashier=2", "200:1").statusCode());
+        store.registerCashier(new Cashier(2, "Ivan", 1200));
+        assertEquals(200, post("/checkout?cashier=2", "200:1").statusCode());
+    }
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(base.resolve(path))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,109 @@
+import model.*;
+import persistence.DirectReceiptPersister;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoneyTest {
+    private static final BigDecimal FOOD_MARGIN = new BigDecimal("0.30");
+    private static final BigDecimal NON_FOOD_MARGIN = new BigDecimal("0.50");
+
+    @Test
+    public void testConversionsRoundByDecimalValue() {
+        assertEquals(101, Money.toMinor(1.005));
+        assertEquals(-101, Money.toMinor(-1.005));
+        assertEquals(1999, Money.toMinor(19.99));
+        assertEquals(1_500, Money.toBasisPoints(0.15));
+        assertEquals(0.1, Money.toMajor(10));
+    }
+
+    @Test
+    public void testRatesRoundHalfAwayFromZero() {
+        assertEquals(13, Money.markUp(10, 3_000));
+        assertEquals(3, Money.applyRate(5, 5_000)); // 2.5
+        assertEquals(2, Money.applyRate(5, 4_999));
+        assertEquals(-3, Money.applyRate(-5, 5_000));
+        assertEquals(221, Money.discount(260, 1_500));
+    }
+
+    @Test
+    public void testFormat() {
+        assertEquals("0.00", Money.format(0));
+        assertEquals("0.05", Money.format(5));
+        assertEquals("12.30", Money.format(1230));
+        assertEquals("-12.05", Money.format(-1205));
+    }
+
+    /**
+     * Prices, receipt totals and revenue must equal, to the stotinka, a straightforward
+     * BigDecimal computation of the documented rounding rules.
+     */
+    @Test
+    public void testCheckoutMatchesTheDecimalReference() throws Exception {
+        LocalDate today = LocalDate.now();
+        Store store = new Store(0.15, 3, new DirectReceiptPersister(receipts -> { }));
+        Cashier cashier = new Cashier(1, "Mariya", 1234.56);
+        store.registerCashier(cashier);
+
+        SplittableRandom random = new SplittableRandom(19);
+        int catalogSize = 500;
+        BigDecimal[] referencePrices = new BigDecimal[catalogSize + 1];
+        BigDecimal referenceDelivery = BigDecimal.ZERO;
+        int[] stock = new int[catalogSize + 1];
+        BigDecimal[] deliveryPrices = new BigDecimal[catalogSize + 1];
+        for (int id = 1; id <= catalogSize; id++) {
+            BigDecimal delivery = BigDecimal.valueOf(1 + random.nextInt(99_999), 2);
+            boolean food = id % 2 == 0;
+            boolean nearExpiry = id % 5 == 0;
+            LocalDate expiry = today.plusDays(nearExpiry ? 1 : 30);
+            stock[id] = 1_000_000;
+            deliveryPrices[id] = delivery;
+            store.stockProduct(food
+                    ? new FoodProduct(id, "Food " + id, delivery.doubleValue(), expiry, stock[id])
+                    : new NonFoodProduct(id, "Goods " + id, delivery.doubleValue(), expiry, stock[id]));
+
+            BigDecimal price = roundToStotinki(delivery.multiply(BigDecimal.ONE.add(food ? FOOD_MARGIN : NON_FOOD_MARGIN)));
+            if (nearExpiry) {
+                price = roundToStotinki(price.multiply(BigDecimal.ONE.subtract(new BigDecimal("0.15"))));
+            }
+            referencePrices[id] = price;
+            assertEquals(price.movePointRight(2).longValueExact(),
+                    store.findProductById(id).getPriceOnSaleCents(today, 3, 1_500), "price of product " + id);
+        }
+
+        BigDecimal referenceRevenue = BigDecimal.ZERO;
+        for (int sale = 0; sale < 20_000; sale++) {
+            int first = 1 + random.nextInt(catalogSize);
+            int second = first % catalogSize + 1;
+            int firstQty = 1 + random.nextInt(5);
+            int secondQty = 1 + random.nextInt(5);
+            Receipt receipt = store.processTransaction(cashier, Map.of(first, firstQty, second, secondQty));
+            stock[first] -= firstQty;
+            stock[second] -= secondQty;
+
+            BigDecimal total = referencePrices[first].multiply(BigDecimal.valueOf(firstQty))
+                    .add(referencePrices[second].multiply(BigDecimal.valueOf(secondQty)));
+            assertEquals(total.movePointRight(2).longValueExact(), receipt.getTotalAmountCents());
+            referenceRevenue = referenceRevenue.add(total);
+        }
+        for (int id = 1; id <= catalogSize; id++) {
+            referenceDelivery = referenceDelivery.add(deliveryPrices[id].multiply(BigDecimal.valueOf(stock[id])));
+        }
+
+        assertEquals(referenceRevenue.movePointRight(2).longValueExact(), store.computeTotalRevenueCents());
+        assertEquals(123_456, store.computeStaffPayrollCents());
+        assertEquals(referenceDelivery.movePointRight(2).longValueExact(), store.computeDeliveryCostsCents());
+        assertEquals(referenceRevenue.subtract(new BigDecimal("1234.56")).subtract(referenceDelivery).movePointRight(2).longValueExact(),
+                store.computeNetProfitCents());
+    }
+
+    private static BigDecimal roundToStotinki(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,185 @@
+import model.*;
+import persistence.ReceiptCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReceiptCodecTest {
+    private static final String GOLDEN_V1 = "0154cef6ebde0c80d3a6750e32d09cd0b0d180d0b8d18f20d09fd0b5d182d180"
+            + "d0bed0b2d0b080e1eb170300ca012ed09ad0b8d181d0b5d0bbd0be20d0bcd0bb"
+            + "d18fd0bad0bed08603a8b5021e06c8df0201cc0140d09fd180d0b5d0bfd0b0d1"
+            + "80d0b0d18220d0b7d0b020d0bcd0b8d0b5d0bdd0b580ee05f2b902100280e508"
+            + "00ca0103d08603a8b5021804c8df02e8c216";
+    private static final String GOLDEN_V2 = "0254cef6ebde0c80d3a6750e32d09cd0b0d180d0b8d18f20d09fd0b5d182d180"
+            + "d0bed0b2d0b0a0c21e0300ca012ed09ad0b8d181d0b5d0bbd0be20d0bcd0bbd1"
+            + "8fd0bad0bef403a8b5021e06c20301cc0140d09fd180d0b5d0bfd0b0d180d0b0"
+            + "d18220d0b7d0b020d0bcd0b8d0b5d0bdd0b5c007f2b9021002a00b00ca0103f4"
+            + "03a8b5021804c203ea1c";
+    private static final String GOLDEN_V3 = "0354cef6ebde0c80d3a6750e32d09cd0b0d180d0b8d18f20d09fd0b5d182d180"
+            + "d0bed0b2d0b0a0c21e03ca012ed09ad0b8d181d0b5d0bbd0be20d0bcd0bbd18f"
+            + "d0bad0be06c203cc0140d09fd180d0b5d0bfd0b0d180d0b0d18220d0b7d0b020"
+            + "d0bcd0b8d0b5d0bdd0b502a00bca010304c203ea1c";
+
+    private Receipt receipt;
+    private ReceiptCodec codec;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        Cashier cashier = new Cashier(7, "Мария Петрова", 2500.0);
+        List<SaleItem> items = Arrays.asList(
+                new SaleItem(new FoodProduct(101, "Кисело мляко", 2.50, LocalDate.of(2024, 3, 14), 15), 3, 2.25),
+                new SaleItem(new NonFoodProduct(102, "Препарат за миене", 4.80, LocalDate.of(2025, 1, 1), 8), 1, 7.20),
+                new SaleItem(new FoodProduct(101, "Кисело мляко", 2.50, LocalDate.of(2024, 3, 14), 12), 2, 2.25));
+        receipt = Receipt.restore(42, cashier, LocalDateTime.of(2024, 3, 10, 9, 30, 15, 123_000_000), items, 18.45);
+        codec = new ReceiptCodec();
+    }
+
+    @AfterEach
+    public void cleanUp() throws IOException {
+        Files.deleteIfExists(Path.of("receipt-" + receipt.getNumber() + ".ser"));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        int length = codec.encode(receipt);
+        Receipt decoded = codec.decode(ByteBuffer.wrap(codec.array(), 0, length));
+
+        assertEquals(receipt.getNumber(), decoded.getNumber());
+        assertEquals(receipt.getDateTime(), decoded.getDateTime());
+        assertEquals(receipt.getTotalAmount(), decoded.getTotalAmount(), 0.0001);
+        assertEquals(receipt.getCashier().getId(), decoded.getCashier().getId());
+        assertEquals(receipt.getCashier().getName(), decoded.getCashier().getName());
+        assertEquals(receipt.getCashier().getSalary(), decoded.getCashier().getSalary(), 0.0001);
+        assertEquals(receipt.toString(), decoded.toString());
+
+        List<SaleItem> expectedItems = receipt.getItems();
+        List<SaleItem> decodedItems = decoded.getItems();
+        assertEquals(expectedItems.size(), decodedItems.size());
+        for (int i = 0; i < expectedItems.size(); i++) {
+            SaleItem expected = expectedItems.get(i);
+            SaleItem actual = decodedItems.get(i);
+            assertEquals(expected.getQty(), actual.getQty());
+            assertEquals(expected.getUnitPrice(), actual.getUnitPrice(), 0.0001);
+            assertEquals(expected.getProductId(), actual.getProductId());
+            assertEquals(expected.getProductName(), actual.getProductName());
+        }
+    }
+
+    @Test
+    public void testRoundTripOfReceiptLargerThanInitialBuffer() throws Exception {
+        Cashier cashier = new Cashier(7, "Мария Петрова", 2500.0);
+        List<SaleItem> items = new ArrayList<>();
+        double total = 0;
+        for (int i = 0; i < 20; i++) {
+            items.add(new SaleItem(new NonFoodProduct(200 + i, "Продукт номер " + i, 1.00, LocalDate.of(2025, 1, 1), 50), 1, 1.50));
+            total += 1.50;
+        }
+        Receipt large = Receipt.restore(43, cashier, LocalDateTime.of(2024, 3, 10, 9, 30), items, total);
+
+        byte[] encoded = codec.toByteArray(large);
+        assertTrue(encoded.length > 256, "encoded " + encoded.length + " bytes");
+        Receipt decoded = codec.decode(ByteBuffer.wrap(encoded));
+        assertEquals(large.toString(), decoded.toString());
+        assertEquals(large.getTotalAmountCents(), decoded.getTotalAmountCents());
+
+        assertThrows(StreamCorruptedException.class, () -> {
+            codec.decode(ByteBuffer.wrap(encoded, 0, encoded.length - 3));
+        });
+    }
+
+    @Test
+    public void testMissingNamesAreWrittenAsNull() throws Exception {
+        Receipt unnamed = new Receipt(new Cashier(1, null, 1000), List.of(SaleItem.ofCents(1, null, 1, 100)));
+
+        Receipt decoded = codec.decode(ByteBuffer.wrap(codec.toByteArray(unnamed)));
+        assertEquals("null", decoded.getCashier().getName());
+        assertEquals("null", decoded.getItem(0).getProductName());
+    }
+
+    @Test
+    public void testTrailingBytesRejected() {
+        byte[] encoded = Arrays.copyOf(codec.toByteArray(receipt), codec.encode(receipt) + 2);
+
+        assertThrows(StreamCorruptedException.class, () -> {
+            codec.decode(ByteBuffer.wrap(encoded));
+        });
+    }
+
+    @Test
+    public void testVersionThreeFormatIsStable() throws IOException {
+        byte[] golden = HexFormat.of().parseHex(GOLDEN_V3);
+        assertArrayEquals(golden, codec.toByteArray(receipt));
+
+        Receipt decoded = codec.decode(ByteBuffer.wrap(golden));
+        assertEquals(42, decoded.getNumber());
+        assertEquals(receipt.toString(), decoded.toString());
+    }
+
+    @Test
+    public void testVersionTwoFormatStillDecodes() throws IOException {
+        byte[] versionTwo = HexFormat.of().parseHex(GOLDEN_V2);
+        Receipt decoded = codec.decode(ByteBuffer.wrap(versionTwo));
+        assertEquals(42, decoded.getNumber());
+        assertEquals(receipt.toString(), decoded.toString());
+        assertTrue(codec.encode(receipt) < versionTwo.length);
+    }
+
+    @Test
+    public void testVersionOneFormatStillDecodes() throws IOException {
+        Receipt decoded = codec.decode(ByteBuffer.wrap(HexFormat.of().parseHex(GOLDEN_V1)));
+        assertEquals(42, decoded.getNumber());
+        assertEquals(1845, decoded.getTotalAmountCents());
+        assertEquals(receipt.toString(), decoded.toString());
+    }
+
+    @Test
+    public void testEncodingIsMuchSmallerThanJavaSerialization() throws IOException {
+        receipt.serialize();
+        long serializedSize = Files.size(Path.of("receipt-" + receipt.getNumber() + ".ser"));
+        int encodedSize = codec.encode(receipt);
+
+        assertTrue(encodedSize * 5 < serializedSize,
+                "codec: " + encodedSize + " bytes, serialize(): " + serializedSize + " bytes");
+    }
+
+    @Test
+    public void testBufferIsReused() {
+        codec.encode(receipt);
+        byte[] buffer = codec.array();
+        codec.encode(receipt);
+        assertSame(buffer, codec.array());
+    }
+
+    @Test
+    public void testUnknownVersionRejected() {
+        byte[] encoded = codec.toByteArray(receipt);
+        encoded[0] = 99;
+
+        assertThrows(StreamCorruptedException.class, () -> {
+            codec.decode(ByteBuffer.wrap(encoded));
+        });
+    }
+
+    @Test
+    public void testTruncatedRecordRejected() {
+        byte[] encoded = codec.toByteArray(receipt);
+
+        assertThrows(StreamCorruptedException.class, () -> {
+            codec.decode(ByteBuffer.wrap(encoded, 0, encoded.length - 3));
+        });
+    }
+}
@@ -0,0 +1,99 @@
+import model.*;
+import persistence.ReceiptCodec;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.lang.ref.Reference;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReceiptFootprintTest {
+    private static final int RECEIPTS = 1_000_000;
+    private static final int DISTINCT_RECEIPTS = 1_000;
+
+    /**
+     * A million receipts read back from the journal, as the history cache or a recovery holds
+     * them. Each decode makes fresh name strings; the lines must keep none of them, nor any
+     * product copy. Needs about 400 MB of heap, so it only runs under {@code mvn test -Pfootprint}.
+     */
+    @Test
+    @Tag("footprint")
+    public void testMillionDecodedReceiptsStaySmall() throws Exception {
+        ReceiptCodec codec = new ReceiptCodec();
+        byte[][] encoded = new byte[DISTINCT_RECEIPTS][];
+        for (int i = 0; i < DISTINCT_RECEIPTS; i++) {
+            encoded[i] = codec.toByteArray(sampleReceipt(i));
+        }
+
+        Receipt[] receipts = new Receipt[RECEIPTS];
+        long before = usedHeap();
+        for (int i = 0; i < RECEIPTS; i++) {
+            receipts[i] = codec.decode(ByteBuffer.wrap(encoded[i % DISTINCT_RECEIPTS]));
+        }
+        long bytesPerReceipt = (usedHeap() - before) / RECEIPTS;
+        Reference.reachabilityFence(receipts);
+
+        // About 310: two lines, the issue time, the item list and a cashier copy. With a product copy per line it was about 590.
+        assertTrue(bytesPerReceipt < 400, bytesPerReceipt + " bytes per receipt");
+        assertSame(receipts[0].getItem(0).getProductName(), receipts[DISTINCT_RECEIPTS].getItem(0).getProductName());
+    }
+
+    @Test
+    public void testSerializedReceiptCarriesNoProductState() throws Exception {
+        Product product = new FoodProduct(7, "Кисело мляко", 1.20, LocalDate.of(2024, 3, 14), 40);
+        Receipt receipt = Receipt.restoreCents(1, new Cashier(1, "Мария", 1000),
+                LocalDateTime.of(2024, 3, 10, 9, 30), Arrays.asList(SaleItem.ofCents(product, 2, 156)), 312);
+        int serializedSize = serializedSize(receipt);
+
+        product.decreaseQuantity(39);
+        assertEquals(serializedSize, serializedSize(receipt));
+        assertEquals(7, receipt.getItem(0).getProductId());
+        // About 490; with the product, its expiry date and their class descriptors it was about 660.
+        assertTrue(serializedSize < 560, serializedSize + " bytes");
+    }
+
+    @Test
+    public void testNameInterningIsBoundedAndAcceptsNull() {
+        assertNull(SaleItem.ofCents(1, null, 1, 100).getProductName());
+
+        for (int i = 0; i <= SaleItem.MAX_INTERNED_NAMES; i++) {
+            SaleItem.ofCents(i, "Артикул " + i, 1, 100);
+        }
+        String late = new String("Артикул след лимита");
+        assertSame(late, SaleItem.ofCents(1, late, 1, 100).getProductName());
+        assertNotSame(late, SaleItem.ofCents(1, new String(late), 1, 100).getProductName());
+    }
+
+    private static Receipt sampleReceipt(int i) throws Exception {
+        Cashier cashier = new Cashier(1 + i % 5, "Касиер " + (1 + i % 5), 1000);
+        return Receipt.restoreCents(i + 1, cashier, LocalDateTime.of(2024, 3, 1, 9, 0).plusMinutes(i),
+                Arrays.asList(
+                        SaleItem.ofCents(i % 200, "Продукт " + i % 200, 1 + i % 3, 125),
+                        SaleItem.ofCents(200 + i % 50, "Стока " + i % 50, 1, 990)),
+                (1 + i % 3) * 125 + 990);
+    }
+
+    private static int serializedSize(Receipt receipt) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(receipt);
+        }
+        return bytes.size();
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,134 @@
+import exception.InvalidReceiptException;
+import model.*;
+import persistence.ReceiptHistory;
+import persistence.ReceiptJournal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReceiptHistoryTest {
+    private Cashier cashier;
+    private List<SaleItem> items;
+
+    @TempDir
+    Path journalDir;
+
+    @BeforeEach
+    public void setUp() {
+        cashier = new Cashier(1, "Mariya", 1000);
+        items = Collections.singletonList(
+                new SaleItem(new FoodProduct(100, "Waffle", 1.00, LocalDate.now().plusDays(5), 10), 2, 1.30));
+    }
+
+    @Test
+    public void testOldReceiptsAreSpilledAndReadBack() throws Exception {
+        try (ReceiptJournal journal = ReceiptJournal.open(journalDir)) {
+            ReceiptHistory history = new ReceiptHistory(100, journal, 10);
+            List<Receipt> added = addReceipts(history, 1_000);
+
+            assertEquals(1_000, history.size());
+            assertTrue(history.getHotCount() < 100 + ReceiptHistory.SPILL_BATCH);
+            assertTrue(journal.size() >= 1_000 - 100 - ReceiptHistory.SPILL_BATCH);
+
+            Receipt oldest = added.get(0);
+            Receipt read = Receipt.deserialize(history, oldest.getNumber());
+            assertNotSame(oldest, read);
+            assertEquals(oldest.getTotalAmount(), read.getTotalAmount(), 1e-9);
+            assertSame(read, history.get(oldest.getNumber()));
+            assertSame(added.get(999), history.get(added.get(999).getNumber()));
+        }
+    }
+
+    @Test
+    public void testIterationKeepsIssueOrder() throws Exception {
+        try (ReceiptJournal journal = ReceiptJournal.open(journalDir)) {
+            ReceiptHistory history = new ReceiptHistory(50, journal, 0);
+            List<Receipt> added = addReceipts(history, 700);
+
+            List<Integer> listed = new ArrayList<>();
+            for (Receipt receipt : history) {
+                listed.add(receipt.getNumber());
+            }
+            List<Integer> expected = new ArrayList<>();
+            for (Receipt receipt : added) {
+                expected.add(receipt.getNumber());
+            }
+            assertEquals(expected, listed);
+        }
+    }
+
+    @Test
+    public void testReceiptsAlreadyJournaledAreNotWrittenAgain() throws Exception {
+        try (ReceiptJournal journal = ReceiptJournal.open(journalDir)) {
+            List<Receipt> receipts = new ArrayList<>();
+            for (int i = 0; i < ReceiptHistory.SPILL_BATCH; i++) {
+                receipts.add(new Receipt(cashier, items));
+            }
+            journal.write(receipts);
+            long journaledBytes = Files.size(journalDir.resolve("receipts-00000000.log"));
+
+            ReceiptHistory history = new ReceiptHistory(0, journal, 0);
+            receipts.forEach(history::add);
+
+            assertEquals(0, history.getHotCount());
+            assertEquals(journaledBytes, Files.size(journalDir.resolve("receipts-00000000.log")));
+        }
+    }
+
+    @Test
+    public void testReceiptsSpilledBeforeThePersisterWritesThemAreStoredOnce() throws Exception {
+        try (ReceiptJournal journal = ReceiptJournal.open(journalDir)) {
+            ReceiptHistory history = new ReceiptHistory(0, journal, 0);
+            List<Receipt> receipts = addReceipts(history, ReceiptHistory.SPILL_BATCH);
+            assertEquals(0, history.getHotCount());
+            long spilledBytes = Files.size(journalDir.resolve("receipts-00000000.log"));
+
+            // The persister's queue reaches the same receipts after the spill wrote them.
+            journal.write(receipts);
+
+            assertEquals(ReceiptHistory.SPILL_BATCH, journal.size());
+            assertEquals(spilledBytes, Files.size(journalDir.resolve("receipts-00000000.log")));
+            assertEquals(0, history.getSpillFailureCount());
+        }
+    }
+
+    @Test
+    public void testFailedSpillIsCountedAndKeepsReceiptsInMemory() throws Exception {
+        ReceiptJournal journal = ReceiptJournal.open(journalDir);
+        journal.close();
+        ReceiptHistory history = new ReceiptHistory(0, journal, 0);
+        List<Receipt> receipts = addReceipts(history, ReceiptHistory.SPILL_BATCH + 1);
+
+        assertEquals(2, history.getSpillFailureCount());
+        assertNotNull(history.getLastSpillFailure());
+        assertEquals(receipts.size(), history.getHotCount());
+        assertSame(receipts.get(0), history.get(receipts.get(0).getNumber()));
+    }
+
+    @Test
+    public void testUnknownNumber() throws Exception {
+        ReceiptHistory history = ReceiptHistory.unbounded();
+        addReceipts(history, 3);
+        assertThrows(FileNotFoundException.class, () -> history.get(-1));
+    }
+
+    private List<Receipt> addReceipts(ReceiptHistory history, int count) throws InvalidReceiptException {
+        List<Receipt> added = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Receipt receipt = new Receipt(cashier, items);
+            history.add(receipt);
+            added.add(receipt);
+        }
+        return added;
+    }
+}
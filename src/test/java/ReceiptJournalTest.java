@@ -0,0 +1,158 @@
+import exception.InvalidReceiptException;
+import model.*;
+import persistence.ReceiptJournal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReceiptJournalTest {
+    private Cashier cashier;
+    private List<SaleItem> items;
+
+    @TempDir
+    Path journalDir;
+
+    @BeforeEach
+    public void setUp() {
+        cashier = new Cashier(1, "Мария Петрова", 2500.0);
+        items = Arrays.asList(
+                new SaleItem(new FoodProduct(101, "Кисело мляко", 2.50, LocalDate.now().plusDays(7), 15), 3, 2.25),
+                new SaleItem(new NonFoodProduct(102, "Препарат за миене", 4.80, LocalDate.now().plusDays(365), 8), 1, 4.80));
+    }
+
+    @Test
+    public void testWriteAndReadBack() throws Exception {
+        List<Receipt> written = newReceipts(3);
+        try (ReceiptJournal journal = ReceiptJournal.open(journalDir)) {
+            journal.write(written);
+
+            for (Receipt receipt : written) {
+                Receipt read = Receipt.deserialize(journal, receipt.getNumber());
+                assertEquals(receipt.getNumber(), read.getNumber());
+                assertEquals(receipt.getTotalAmount(), read.getTotalAmount(), 0.01);
+                assertEquals(receipt.getCashier().getName(), read.getCashier().getName());
+                assertEquals(2, read.getItems().size());
+            }
+            assertEquals(3, journal.size());
+        }
+
+        try (var files = Files.list(journalDir)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    public void testSegmentsRollAndSurviveReopen() throws Exception {
+        List<Receipt> written = newReceipts(40);
+        try (ReceiptJournal journal = ReceiptJournal.open(journalDir, 4096)) {
+            for (Receipt receipt : written) {
+                journal.write(Collections.singletonList(receipt));
+            }
+            assertTrue(journal.getSegmentCount() > 1);
+            assertEquals(written.get(0).getNumber(), journal.read(written.get(0).getNumber()).getNumber());
+        }
+
+        try (ReceiptJournal reopened = ReceiptJournal.open(journalDir, 4096)) {
+            assertEquals(40, reopened.size());
+            for (Receipt receipt : written) {
+                assertEquals(receipt.getTotalAmount(), reopened.read(receipt.getNumber()).getTotalAmount(), 0.01);
+            }
+        }
+    }
+
+    @Test
+    public void testRecoveryReindexesLogAndDropsTornTail() throws Exception {
+        List<Receipt> written = newReceipts(5);
+        try (ReceiptJournal journal = ReceiptJournal.open(journalDir)) {
+            journal.write(written);
+        }
+
+        Path log = journalDir.resolve("receipts-00000000.log");
+        long intactSize = Files.size(log);
+        Files.write(journalDir.resolve("receipts-00000000.idx"), new byte[0]);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 1, 0, 0, 0}));
+        }
+
+        try (ReceiptJournal reopened = ReceiptJournal.open(journalDir)) {
+            assertEquals(5, reopened.size());
+            assertEquals(intactSize, Files.size(log));
+            assertEquals(written.get(4).getNumber(), reopened.read(written.get(4).getNumber()).getNumber());
+
+            Receipt next = newReceipts(1).get(0);
+            reopened.write(Collections.singletonList(next));
+            assertEquals(next.getNumber(), reopened.read(next.getNumber()).getNumber());
+        }
+    }
+
+    @Test
+    public void testReadUnknownNumber() throws Exception {
+        try (ReceiptJournal journal = ReceiptJournal.open(journalDir)) {
+            assertThrows(FileNotFoundException.class, () -> {
+                journal.read(99999);
+            });
+        }
+    }
+
+    @Test
+    public void testRewritingAJournaledReceiptStoresItOnce() throws Exception {
+        Receipt receipt = new Receipt(1, cashier, items);
+        try (ReceiptJournal journal = ReceiptJournal.open(journalDir)) {
+            journal.write(List.of(receipt));
+        }
+        try (ReceiptJournal journal = ReceiptJournal.open(journalDir)) {
+            long before = journalBytes();
+            journal.write(List.of(receipt));
+            assertEquals(before, journalBytes());
+            assertEquals(1, journal.size());
+        }
+    }
+
+    @Test
+    public void testReusedNumberIsRejected() throws Exception {
+        try (ReceiptJournal journal = ReceiptJournal.open(journalDir)) {
+            journal.write(List.of(new Receipt(1, cashier, items)));
+        }
+        try (ReceiptJournal journal = ReceiptJournal.open(journalDir)) {
+            Receipt reused = new Receipt(1, cashier, items.subList(0, 1));
+            Receipt fresh = new Receipt(2, cashier, items);
+            assertThrows(IOException.class, () -> journal.write(List.of(fresh, reused)));
+
+            assertFalse(journal.contains(2));
+            assertEquals(2, journal.read(1).getItems().size());
+        }
+    }
+
+    private long journalBytes() throws IOException {
+        long bytes = 0;
+        try (var files = Files.list(journalDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                bytes += Files.size(file);
+            }
+        }
+        return bytes;
+    }
+
+    private List<Receipt> newReceipts(int count) throws InvalidReceiptException {
+        List<Receipt> receipts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            receipts.add(new Receipt(cashier, items));
+        }
+        return receipts;
+    }
+}
@@ -0,0 +1,115 @@
+import persistence.ReceiptSequence;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReceiptSequenceTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testConcurrentTillsNeverShareANumber() throws Exception {
+        Set<Integer> issued = ConcurrentHashMap.newKeySet();
+        ExecutorService tills = Executors.newFixedThreadPool(8);
+        try (ReceiptSequence sequence = ReceiptSequence.open(tempDir.resolve("receipt.seq"), 16)) {
+            List<Future<?>> results = new ArrayList<>();
+            for (int till = 0; till < 8; till++) {
+                results.add(tills.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        assertTrue(issued.add(sequence.next()));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            tills.shutdown();
+        }
+        assertEquals(80_000, issued.size());
+    }
+
+    @Test
+    public void testThreadPerRequestDoesNotClaimABlockEach() throws Exception {
+        try (ReceiptSequence sequence = ReceiptSequence.open(tempDir.resolve("receipt.seq"), 64)) {
+            long initialCeiling = sequence.getDurableCeiling();
+            int last = 0;
+            for (int request = 0; request < 1_000; request++) {
+                int[] number = new int[1];
+                Thread thread = new Thread(() -> {
+                    try {
+                        number[0] = sequence.next();
+                    } catch (Exception e) {
+                        throw new AssertionError(e);
+                    }
+                });
+                thread.start();
+                thread.join();
+                assertTrue(number[0] > last);
+                last = number[0];
+            }
+            assertEquals(1_000, last);
+            assertEquals(initialCeiling + 64L * ReceiptSequence.RESERVED_BLOCKS, sequence.getDurableCeiling());
+        }
+    }
+
+    @Test
+    public void testNumberingContinuesAfterRestart() throws Exception {
+        Path file = tempDir.resolve("receipt.seq");
+        int last = 0;
+        try (ReceiptSequence sequence = ReceiptSequence.open(file, 4)) {
+            for (int i = 0; i < 1_000; i++) {
+                int number = sequence.next();
+                assertTrue(number > last);
+                last = number;
+            }
+        }
+        assertEquals(32, Files.size(file));
+
+        // Closing is not required: the ceiling is forced before any number below it is issued.
+        ReceiptSequence reopened = ReceiptSequence.open(file, 4);
+        assertTrue(reopened.next() > last);
+        reopened.close();
+    }
+
+    @Test
+    public void testTornCeilingWriteFallsBackToOtherCopy() throws Exception {
+        Path file = tempDir.resolve("receipt.seq");
+        int last;
+        try (ReceiptSequence sequence = ReceiptSequence.open(file, 1)) {
+            last = sequence.next();
+            for (int i = 1; i < ReceiptSequence.RESERVED_BLOCKS - 1; i++) {
+                last = sequence.next();
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5, 6, 7}), 16);
+        }
+
+        try (ReceiptSequence reopened = ReceiptSequence.open(file, 1)) {
+            assertTrue(reopened.next() > last);
+        }
+    }
+
+    @Test
+    public void testInMemorySequenceStartsAtOne() throws Exception {
+        ReceiptSequence sequence = ReceiptSequence.inMemory();
+        assertEquals(1, sequence.next());
+        assertEquals(2, sequence.next());
+    }
+}
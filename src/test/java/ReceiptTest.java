@@ -6,17 +6,44 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HexFormat;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class ReceiptTest {
+    // A receipt serialized by the original classes, which kept money in doubles and the Product in each line.
+    private static final String BASELINE_SERIALIZED = "aced00057372000d6d6f64656c2e52656365697074211fe274cf8fd281020005"
+            + "4900066e756d62657244000b746f74616c416d6f756e744c0007636173686965"
+            + "7274000f4c6d6f64656c2f436173686965723b4c00086461746554696d657400"
+            + "194c6a6176612f74696d652f4c6f63616c4461746554696d653b4c0005697465"
+            + "6d737400104c6a6176612f7574696c2f4c6973743b787000000001402be66666"
+            + "6666667372000d6d6f64656c2e4361736869657213eaf08e5e05793c02000349"
+            + "0002696444000673616c6172794c00046e616d657400124c6a6176612f6c616e"
+            + "672f537472696e673b78700000000740a38800000000007400064d6172697961"
+            + "7372000d6a6176612e74696d652e536572955d84ba1b2248b20c00007870770e"
+            + "05000007ea0a10161a2d0be488db78737200136a6176612e7574696c2e417272"
+            + "61794c6973747881d21d99c7619d03000149000473697a657870000000027704"
+            + "000000027372000e6d6f64656c2e53616c654974656d39f583b9a640f58d0200"
+            + "03490003717479440009756e697450726963654c000770726f6475637474000f"
+            + "4c6d6f64656c2f50726f647563743b7870000000034002000000000000737200"
+            + "116d6f64656c2e466f6f6450726f6475637412e79bdfef4216e8020000787200"
+            + "0d6d6f64656c2e50726f64756374d9782ab7154ae2fd02000544000d64656c69"
+            + "76657279507269636549000269644900037174794c000a657870697279446174"
+            + "657400154c6a6176612f74696d652f4c6f63616c446174653b4c00046e616d65"
+            + "71007e000678704004000000000000000000650000000f7371007e0009770703"
+            + "000007e8030e78740006596f677572747371007e000d00000001401ccccccccc"
+            + "cccd737200146d6f64656c2e4e6f6e466f6f6450726f64756374ba1da66c19f2"
+            + "24a50200007871007e0011401333333333333300000066000000087371007e00"
+            + "09770703000007e9010178740004536f617078";
+
     private Receipt receipt;
     private Cashier testCashier;
     private List<SaleItem> testItems;
@@ -98,6 +125,15 @@ public class ReceiptTest {
         assertEquals(1, singleItemReceipt.getItems().size());
     }
 
+    @Test
+    public void testMissingNamesPrintAsNull() throws InvalidReceiptException {
+        Receipt unnamed = new Receipt(new Cashier(1, null, 1000), List.of(SaleItem.ofCents(1, null, 1, 100)));
+
+        String text = unnamed.toString();
+        assertTrue(text.contains("Cashier - null\n"), text);
+        assertTrue(text.contains("  null x1 * "), text);
+    }
+
     @Test
     public void testNullCashierThrowsException() {
         InvalidReceiptException exception = assertThrows(InvalidReceiptException.class, () -> {
@@ -166,6 +202,35 @@ public class ReceiptTest {
         assertEquals(receipt.getItems().size(), deserializedReceipt.getItems().size());
     }
 
+    @Test
+    public void testReadsReceiptsSerializedByTheOriginalClasses() throws IOException, ClassNotFoundException {
+        Receipt old;
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(HexFormat.of().parseHex(BASELINE_SERIALIZED)))) {
+            old = (Receipt) in.readObject();
+        }
+
+        assertEquals(1, old.getNumber());
+        assertEquals(1395, old.getTotalAmountCents());
+        assertEquals(7, old.getCashier().getId());
+        assertEquals(250_000, old.getCashier().getSalaryCents());
+        assertEquals(2, old.getItemCount());
+        assertEquals(101, old.getItem(0).getProductId());
+        assertEquals("Yogurt", old.getItem(0).getProductName());
+        assertEquals(3, old.getItem(0).getQty());
+        assertEquals(225, old.getItem(0).getUnitPriceCents());
+        assertEquals("Soap", old.getItem(1).getProductName());
+        assertEquals(720, old.getItem(1).getUnitPriceCents());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(old);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(old.toString(), in.readObject().toString());
+        }
+    }
+
     @Test
     public void testDeserializeNonExistentReceipt() {
         assertThrows(FileNotFoundException.class, () -> {
@@ -185,6 +250,46 @@ public class ReceiptTest {
         assertTrue(receiptString.contains(String.format("%.2f лв", receipt.getTotalAmount())));
     }
 
+    @Test
+    public void testRenderingMatchesTheFormattedLayout() throws InvalidReceiptException {
+        LocalDateTime[] times = {
+                LocalDateTime.of(2024, 3, 1, 9, 0),
+                LocalDateTime.of(2024, 3, 1, 9, 5, 7),
+                LocalDateTime.of(987, 12, 31, 23, 59, 0, 120_000_000),
+                LocalDateTime.of(2024, 3, 1, 0, 0, 0, 4_000),
+                LocalDateTime.of(2024, 3, 1, 0, 0, 59, 7),
+                LocalDateTime.of(12_345, 1, 1, 0, 0)
+        };
+        List<SaleItem> items = Arrays.asList(item1, item2, SaleItem.ofCents(101, "Кисело мляко", 12, 5));
+        for (LocalDateTime time : times) {
+            Receipt restored = Receipt.restore(42, testCashier, time, items, 12.35);
+
+            StringBuilder expected = new StringBuilder();
+            expected.append("======= Receipt №42 =======\n");
+            expected.append("Cashier - ").append(testCashier.getName()).append("\n");
+            expected.append("Date - ").append(time).append("\n");
+            expected.append("------------------------\nBought Items: \n");
+            for (SaleItem item : items) {
+                String line = String.format("%s x%d * %.2f leva - %.2f leva", item.getProductName(),
+                        item.getQty(), item.getUnitPrice(), item.getTotalCost());
+                assertEquals(line, item.toString());
+                expected.append("  ").append(line).append("\n");
+            }
+            expected.append("Grand Total: 12.35 лв");
+
+            assertEquals(expected.toString(), restored.toString());
+            assertEquals(expected.toString(), ReceiptRenderer.forCurrentThread().render(restored).toString());
+        }
+    }
+
+    @Test
+    public void testSavedFileIsUtf8() throws IOException {
+        receipt.saveToFile();
+
+        byte[] saved = Files.readAllBytes(Path.of("receipt-" + receipt.getNumber() + ".txt"));
+        assertArrayEquals((receipt + System.lineSeparator()).getBytes(StandardCharsets.UTF_8), saved);
+    }
+
     @Test
     public void testReceiptDateTime() throws InvalidReceiptException {
         LocalDateTime beforeCreation = LocalDateTime.now().minusSeconds(1);
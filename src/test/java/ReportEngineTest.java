@@ -0,0 +1,82 @@
+import model.*;
+import persistence.ReceiptJournal;
+import report.ReportEngine;
+import report.SalesReport;
+import report.SalesTally;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReportEngineTest {
+    @TempDir
+    Path journalDir;
+
+    @Test
+    public void testReportsMatchASequentialPassOverEveryReceipt() throws Exception {
+        Map<Integer, Double> revenuePerCashier = new HashMap<>();
+        Map<Integer, Long> unitsPerProduct = new HashMap<>();
+        Map<LocalDate, Long> receiptsPerDay = new HashMap<>();
+        LocalDateTime start = LocalDateTime.of(2024, 3, 1, 9, 0);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try (ReceiptJournal journal = ReceiptJournal.open(journalDir, 16 * 1024)) {
+            for (int batch = 0; batch < 20; batch++) {
+                List<Receipt> receipts = new ArrayList<>();
+                for (int i = 0; i < 50; i++) {
+                    int number = batch * 50 + i + 1;
+                    Cashier cashier = new Cashier(number % 7, "Cashier " + number % 7, 1000);
+                    List<SaleItem> items = new ArrayList<>();
+                    for (int line = 0; line < 1 + number % 3; line++) {
+                        int productId = (number + line) % 40;
+                        Product product = new NonFoodProduct(productId, "Item " + productId, 1.00, LocalDate.of(2030, 1, 1), 100);
+                        items.add(new SaleItem(product, 1 + line, 1.50));
+                        unitsPerProduct.merge(productId, (long) (1 + line), Long::sum);
+                    }
+                    LocalDateTime issued = start.plusHours(number);
+                    Receipt receipt = Receipt.restore(number, cashier, issued, items, items.size() * 1.50);
+                    receipts.add(receipt);
+                    revenuePerCashier.merge(cashier.getId(), receipt.getTotalAmount(), Double::sum);
+                    receiptsPerDay.merge(issued.toLocalDate(), 1L, Long::sum);
+                }
+                journal.write(receipts);
+            }
+            assertTrue(journal.getSegmentCount() > 3);
+
+            ReportEngine engine = new ReportEngine(pool, 64);
+            SalesTally<Integer> perCashier = engine.run(journal, SalesReport.perCashier());
+            SalesTally<Integer> perProduct = engine.run(journal, SalesReport.perProduct());
+            SalesTally<LocalDate> perDay = engine.run(journal, SalesReport.perDay());
+
+            assertEquals(revenuePerCashier.size(), perCashier.size());
+            revenuePerCashier.forEach((id, revenue) -> assertEquals(revenue, perCashier.get(id).getRevenue(), 1e-6));
+            assertEquals(unitsPerProduct.size(), perProduct.size());
+            unitsPerProduct.forEach((id, units) -> assertEquals(units, perProduct.get(id).getUnits()));
+            assertEquals(receiptsPerDay.size(), perDay.size());
+            receiptsPerDay.forEach((day, count) -> assertEquals(count, perDay.get(day).getReceipts()));
+            long receipts = 0;
+            for (SalesTally.Totals totals : perCashier.asMap().values()) {
+                receipts += totals.getReceipts();
+            }
+            assertEquals(1_000, receipts);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testEmptyJournalGivesAnEmptyReport() throws Exception {
+        try (ReceiptJournal journal = ReceiptJournal.open(journalDir)) {
+            assertEquals(0, new ReportEngine().run(journal, SalesReport.perDay()).size());
+        }
+    }
+}
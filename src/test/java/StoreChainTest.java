@@ -0,0 +1,141 @@
+import model.*;
+import persistence.DirectReceiptPersister;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class StoreChainTest {
+    @TempDir
+    Path chainDir;
+
+    @Test
+    public void testChainFiguresAreTheSumOfItsStores() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ExecutorService tills = Executors.newFixedThreadPool(8);
+        try (StoreChain chain = new StoreChain(chainDir, 4, pool)) {
+            List<Store> stores = new ArrayList<>();
+            List<Cashier> cashiers = new ArrayList<>();
+            for (int s = 0; s < 12; s++) {
+                Store store = chain.openStore("shop-" + s, 0.15, 3);
+                Cashier cashier = new Cashier(1, "Cashier " + s, 1000 + s);
+                store.registerCashier(cashier);
+                cashiers.add(cashier);
+                for (int id = 1; id <= 20; id++) {
+                    store.stockProduct(new NonFoodProduct(id, "Item " + id, 1.00 + s, LocalDate.now().plusDays(id), 100));
+                }
+                stores.add(store);
+            }
+
+            List<Future<?>> sales = new ArrayList<>();
+            for (int s = 0; s < stores.size(); s++) {
+                Store store = stores.get(s);
+                Cashier cashier = cashiers.get(s);
+                sales.add(tills.submit(() -> {
+                    Basket basket = new Basket();
+                    for (int sale = 0; sale < 200; sale++) {
+                        basket.clear();
+                        basket.add(1 + sale % 20, 1).add(1 + (sale + 7) % 20, 1);
+                        assertTrue(store.checkout(cashier, basket).isAccepted());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> sale : sales) {
+                sale.get();
+            }
+
+            long revenue = 0;
+            long profit = 0;
+            for (Store store : stores) {
+                revenue += store.computeTotalRevenueCents();
+                profit += store.computeNetProfitCents();
+            }
+            assertTrue(revenue > 0);
+            assertEquals(revenue, chain.computeTotalRevenueCents());
+            assertEquals(profit, chain.computeNetProfitCents());
+            assertEquals(Money.toMajor(profit), chain.computeNetProfit(), 1e-9);
+
+            Map<String, List<Product>> low = chain.findItemsRunningLow(80);
+            assertEquals(12, low.size());
+            assertEquals(20, low.get("shop-3").size());
+            Map<String, List<Product>> closeToExpiry = chain.findItemsCloseToExpiry(LocalDate.now());
+            assertEquals(stores.get(5).findItemsCloseToExpiry(LocalDate.now()).size(), closeToExpiry.get("shop-5").size());
+            assertTrue(chain.findExpiredItems(LocalDate.now()).isEmpty());
+            assertEquals(20, chain.findExpiredItems(LocalDate.now().plusDays(30)).get("shop-11").size());
+        } finally {
+            tills.shutdown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testEachStoreKeepsItsOwnReceiptsUnderItsShard() throws Exception {
+        int lastNumber;
+        Path storage;
+        try (StoreChain chain = new StoreChain(chainDir, 3)) {
+            Store store = chain.openStore("sofia-1", 0.15, 3);
+            Store other = chain.openStore("plovdiv-2", 0.15, 3);
+            Cashier cashier = new Cashier(1, "Mariya", 1000);
+            store.stockProduct(new NonFoodProduct(1, "Soap", 1.00, LocalDate.now().plusDays(30), 10));
+            other.stockProduct(new NonFoodProduct(1, "Soap", 1.00, LocalDate.now().plusDays(30), 10));
+
+            store.processTransaction(cashier, Map.of(1, 2));
+            lastNumber = store.processTransaction(cashier, Map.of(1, 1)).getNumber();
+            assertEquals(1, other.processTransaction(cashier, Map.of(1, 1)).getNumber());
+            assertEquals(7, store.findProductById(1).getQty());
+            assertEquals(9, other.findProductById(1).getQty());
+
+            storage = chain.storageOf("sofia-1");
+            assertEquals(chainDir.resolve(String.format("shard-%02d", chain.shardOf("sofia-1"))).resolve("sofia-1"), storage);
+            assertThrows(IllegalArgumentException.class, () -> chain.openStore("sofia-1", 0.15, 3));
+            assertThrows(IllegalArgumentException.class, () -> chain.register("../escape", new Store(0.15, 3,
+                    new DirectReceiptPersister(receipts -> { }))));
+        }
+        assertTrue(Files.isDirectory(storage.resolve("receipts")));
+
+        try (StoreChain reopened = new StoreChain(chainDir, 3)) {
+            Store store = reopened.openStore("sofia-1", 0.15, 3);
+            store.stockProduct(new NonFoodProduct(1, "Soap", 1.00, LocalDate.now().plusDays(30), 10));
+            assertTrue(store.processTransaction(new Cashier(1, "Mariya", 1000), Map.of(1, 1)).getNumber() > lastNumber);
+        }
+    }
+
+    @Test
+    public void testFailedOpenClosesTheStorageItOpened() throws Exception {
+        Path openFiles = Path.of("/proc/self/fd");
+        assumeTrue(Files.isDirectory(openFiles), "needs /proc to count open files");
+        try (StoreChain chain = new StoreChain(chainDir, 4, new ForkJoinPool(2))) {
+            // A directory where the receipt sequence file should be makes opening it fail.
+            Files.createDirectories(chain.storageOf("broken").resolve("receipt.seq"));
+            // The first attempt also opens files the JDK keeps open for good, such as class files.
+            assertThrows(IOException.class, () -> chain.openStore("broken", 0.15, 3));
+            long before = countEntries(openFiles);
+
+            for (int attempt = 0; attempt < 3; attempt++) {
+                assertThrows(IOException.class, () -> chain.openStore("broken", 0.15, 3));
+            }
+            assertEquals(before, countEntries(openFiles));
+            assertNull(chain.getStore("broken"));
+        }
+    }
+
+    private static long countEntries(Path directory) throws IOException {
+        try (var entries = Files.list(directory)) {
+            return entries.count();
+        }
+    }
+}
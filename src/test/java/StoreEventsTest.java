@@ -0,0 +1,109 @@
+import model.*;
+import persistence.DirectReceiptPersister;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StoreEventsTest {
+    private final Cashier cashier = new Cashier(1, "Mariya", 1000);
+
+    @Test
+    public void testSubscriberIsToldOfStockingSalesAndStockTaken() throws Exception {
+        Store store = new Store(0.15, 3, new DirectReceiptPersister(receipts -> { }));
+        Recorder recorder = new Recorder(Long.MAX_VALUE);
+        store.getEvents().subscribe(recorder);
+
+        store.stockProduct(new NonFoodProduct(1, "Soap", 1.00, LocalDate.now().plusDays(30), 10));
+        store.stockProduct(new NonFoodProduct(2, "Towel", 5.00, LocalDate.now().plusDays(30), 4));
+        Receipt receipt = store.processTransaction(cashier, Map.of(1, 3, 2, 1));
+        assertFalse(store.checkout(cashier, new Basket().add(2, 9)).isAccepted());
+        store.getEvents().close();
+        assertTrue(recorder.completed.await(5, TimeUnit.SECONDS));
+
+        List<StoreEvent> events = recorder.events;
+        assertEquals(5, events.size(), events.toString());
+        assertEquals(StoreEvent.Type.PRODUCT_STOCKED, events.get(0).getType());
+        assertEquals(10, events.get(0).getQuantity());
+        StoreEvent soap = events.get(2).getProductId() == 1 ? events.get(2) : events.get(3);
+        assertEquals(StoreEvent.Type.STOCK_DECREMENTED, soap.getType());
+        assertEquals(3, soap.getChange());
+        assertEquals(7, soap.getQuantity());
+        assertEquals(StoreEvent.Type.RECEIPT_CREATED, events.get(4).getType());
+        assertSame(receipt, events.get(4).getReceipt());
+    }
+
+    @Test
+    public void testStalledSubscriberDoesNotHoldUpCheckout() throws Exception {
+        ExecutorService delivery = Executors.newFixedThreadPool(2);
+        StoreEvents events = new StoreEvents(delivery, 4);
+        try {
+            Store store = new Store(0.15, 3, new DirectReceiptPersister(receipts -> { }));
+            store.setEvents(events);
+            Recorder stalled = new Recorder(0);
+            Recorder reader = new Recorder(Long.MAX_VALUE);
+            events.subscribe(stalled);
+            events.subscribe(reader);
+            store.stockProduct(new NonFoodProduct(1, "Soap", 1.00, LocalDate.now().plusDays(30), 10_000));
+
+            Basket basket = new Basket();
+            for (int sale = 0; sale < 1_000; sale++) {
+                basket.clear();
+                assertTrue(store.checkout(cashier, basket.add(1, 1)).isAccepted());
+            }
+            events.close();
+            assertTrue(reader.completed.await(5, TimeUnit.SECONDS));
+
+            // 2,001 events for each subscriber: every one reached the reader, was dropped, or is
+            // among the 4 left in the stalled subscriber's buffer.
+            assertTrue(stalled.events.isEmpty());
+            assertTrue(events.getDroppedCount() >= 2_001 - 4, events.getDroppedCount() + " dropped");
+            assertEquals(2 * 2_001 - 4, reader.events.size() + events.getDroppedCount());
+            assertFalse(reader.events.isEmpty());
+        } finally {
+            events.close();
+            delivery.shutdownNow();
+        }
+    }
+
+    private static final class Recorder implements Flow.Subscriber<StoreEvent> {
+        final List<StoreEvent> events = new CopyOnWriteArrayList<>();
+        final CountDownLatch completed = new CountDownLatch(1);
+        private final long demand;
+
+        Recorder(long demand) {
+            this.demand = demand;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            if (demand > 0) {
+                subscription.request(demand);
+            }
+        }
+
+        @Override
+        public void onNext(StoreEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+    }
+}
@@ -0,0 +1,264 @@
+import model.*;
+import persistence.DirectReceiptPersister;
+import persistence.StateLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StoreRecoveryTest {
+    @TempDir
+    Path tempDir;
+
+    private static Store newStore() {
+        return new Store(0.15, 3, new DirectReceiptPersister(receipts -> { }));
+    }
+
+    @Test
+    public void testRecoversFromTheLogAlone() throws Exception {
+        Cashier cashier = new Cashier(1, "Mariya", 1000);
+        try (StateLog log = StateLog.open(tempDir)) {
+            Store store = newStore();
+            store.recover(log);
+            store.registerCashier(cashier);
+            store.stockProduct(new NonFoodProduct(1, "Soap", 2.00, LocalDate.now().plusDays(30), 10));
+            store.stockProduct(new FoodProduct(2, "Bread", 1.00, LocalDate.now().plusDays(10), 5));
+            store.processTransaction(cashier, Map.of(1, 3, 2, 1));
+            store.processTransaction(cashier, Map.of(1, 2));
+        }
+
+        try (StateLog log = StateLog.open(tempDir)) {
+            Store recovered = newStore();
+            recovered.recover(log);
+            assertEquals(5, recovered.findProductById(1).getQty());
+            assertEquals(4, recovered.findProductById(2).getQty());
+            assertEquals(1, recovered.getStoreEmployees().size());
+            assertEquals(2, recovered.getTotalTransactionCount());
+            assertEquals(5 * 3.00 + 1.30, recovered.computeTotalRevenue(), 1e-9);
+            assertEquals(1000, recovered.computeStaffPayroll(), 1e-9);
+            assertEquals(2, recovered.getAllTransactions().size());
+        }
+    }
+
+    @Test
+    public void testLogsReceiptsLargerThanTheCodecBuffer() throws Exception {
+        Cashier cashier = new Cashier(1, "Mariya", 1000);
+        Basket basket = new Basket();
+        try (StateLog log = StateLog.open(tempDir)) {
+            Store store = newStore();
+            store.recover(log);
+            store.registerCashier(cashier);
+            for (int id = 1; id <= 20; id++) {
+                store.stockProduct(new NonFoodProduct(id, "Long product name number " + id, 1.00,
+                        LocalDate.now().plusDays(30), 10));
+                basket.add(id, 1);
+            }
+            Receipt receipt = store.processTransaction(cashier, basket);
+            assertEquals(20, receipt.getItemCount());
+            assertEquals(1, store.getTotalTransactionCount());
+        }
+
+        try (StateLog log = StateLog.open(tempDir)) {
+            Store recovered = newStore();
+            recovered.recover(log);
+            assertEquals(1, recovered.getTotalTransactionCount());
+            assertEquals(20 * 1.50, recovered.computeTotalRevenue(), 1e-9);
+            assertEquals(20, recovered.getAllTransactions().get(0).getItemCount());
+        }
+    }
+
+    @Test
+    public void testRecoversFromSnapshotAndLogTail() throws Exception {
+        Cashier cashier = new Cashier(1, "Mariya", 1000);
+        int beforeSnapshot;
+        try (StateLog log = StateLog.open(tempDir, 4096)) {
+            Store store = newStore();
+            store.recover(log);
+            store.registerCashier(cashier);
+            for (int id = 1; id <= 100; id++) {
+                store.stockProduct(new NonFoodProduct(id, "Item " + id, 1.00, LocalDate.now().plusDays(30), 1_000));
+            }
+            for (int i = 0; i < 500; i++) {
+                store.processTransaction(cashier, Map.of(i % 100 + 1, 1));
+            }
+            store.checkpoint();
+            beforeSnapshot = store.getTotalTransactionCount();
+            for (int i = 0; i < 500; i++) {
+                store.processTransaction(cashier, Map.of(i % 100 + 1, 1));
+            }
+            int segmentsBeforeCheckpoint = log.getSegmentCount();
+            store.checkpoint();
+            assertTrue(log.getSegmentCount() < segmentsBeforeCheckpoint, "segments before the older snapshot are deleted");
+            store.registerCashier(new Cashier(2, "Ivan", 1200));
+            store.stockProduct(new NonFoodProduct(101, "Late arrival", 1.00, LocalDate.now().plusDays(30), 7));
+            store.processTransaction(cashier, Map.of(101, 2, 1, 1));
+        }
+
+        try (StateLog log = StateLog.open(tempDir, 4096)) {
+            Store recovered = newStore();
+            recovered.recover(log);
+            assertEquals(989, recovered.findProductById(1).getQty());
+            assertEquals(990, recovered.findProductById(2).getQty());
+            assertEquals(5, recovered.findProductById(101).getQty());
+            assertEquals(2, recovered.getStoreEmployees().size());
+            assertEquals(2 * beforeSnapshot + 1, recovered.getTotalTransactionCount());
+            // Only the receipt logged after the newest snapshot is replayed into the history,
+            // while the count keeps every receipt.
+            assertEquals(1, recovered.getAllTransactions().size());
+            assertEquals(recovered.getTotalTransactionCount() - 2 * beforeSnapshot,
+                    recovered.getAllTransactions().size());
+
+            // Recovery attaches the log, so the recovered store keeps logging.
+            recovered.processTransaction(cashier, Map.of(101, 5));
+        }
+        try (StateLog log = StateLog.open(tempDir, 4096)) {
+            Store recovered = newStore();
+            recovered.recover(log);
+            assertEquals(0, recovered.findProductById(101).getQty());
+        }
+    }
+
+    @Test
+    public void testCheckpointsDuringCheckoutRecoverTheLiveState() throws Exception {
+        Cashier cashier = new Cashier(1, "Mariya", 1000);
+        Store live = newStore();
+        ExecutorService tills = Executors.newFixedThreadPool(4);
+        try (StateLog log = StateLog.open(tempDir, 64 * 1024)) {
+            live.recover(log);
+            live.registerCashier(cashier);
+            for (int id = 1; id <= 50; id++) {
+                live.stockProduct(new NonFoodProduct(id, "Item " + id, 1.00, LocalDate.now().plusDays(30), 100_000));
+            }
+            AtomicBoolean selling = new AtomicBoolean(true);
+            List<Future<?>> results = new ArrayList<>();
+            for (int till = 0; till < 4; till++) {
+                int seed = till;
+                results.add(tills.submit(() -> {
+                    SplittableRandom random = new SplittableRandom(seed);
+                    while (selling.get()) {
+                        int first = random.nextInt(50) + 1;
+                        live.processTransaction(cashier, Map.of(first, 1, first % 50 + 1, 2));
+                    }
+                    return null;
+                }));
+            }
+            for (int i = 0; i < 5; i++) {
+                Thread.sleep(20);
+                live.checkpoint();
+            }
+            selling.set(false);
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            tills.shutdown();
+        }
+
+        try (StateLog log = StateLog.open(tempDir, 64 * 1024)) {
+            Store recovered = newStore();
+            recovered.recover(log);
+            for (int id = 1; id <= 50; id++) {
+                assertEquals(live.findProductById(id).getQty(), recovered.findProductById(id).getQty(), "product " + id);
+            }
+            assertEquals(live.getTotalTransactionCount(), recovered.getTotalTransactionCount());
+            assertEquals(live.computeTotalRevenue(), recovered.computeTotalRevenue(), 1e-6);
+        }
+    }
+
+    @Test
+    public void testCheckpointerCountsFailedCheckpoints() throws Exception {
+        Store store = newStore();
+        StateLog log = StateLog.open(tempDir);
+        store.recover(log);
+        log.close();
+
+        StoreCheckpointer checkpointer = new StoreCheckpointer(store, 5, TimeUnit.MILLISECONDS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (checkpointer.getFailureCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(checkpointer.getFailureCount() > 0);
+        assertNotNull(checkpointer.getLastFailure());
+        assertThrows(IOException.class, checkpointer::close);
+    }
+
+    @Test
+    public void testCheckpointerKeepsRunningAfterUncheckedFailure() throws Exception {
+        Store store = newStore();
+
+        StoreCheckpointer checkpointer = new StoreCheckpointer(store, 5, TimeUnit.MILLISECONDS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (checkpointer.getFailureCount() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(checkpointer.getFailureCount() >= 2);
+        assertInstanceOf(IllegalStateException.class, checkpointer.getLastFailure());
+        assertThrows(IllegalStateException.class, checkpointer::close);
+    }
+
+    @Test
+    public void testClosingCheckpointerLeavesStateLogOpen() throws Exception {
+        try (StateLog log = StateLog.open(tempDir)) {
+            Store store = newStore();
+            store.recover(log);
+            for (int id = 1; id <= 20_000; id++) {
+                store.stockProduct(new FoodProduct(id, "Bread " + id, 1.00, LocalDate.now().plusDays(10), 10));
+            }
+            for (int round = 0; round < 20; round++) {
+                StoreCheckpointer checkpointer = new StoreCheckpointer(store, 1, TimeUnit.MILLISECONDS);
+                Thread.sleep(3);
+                checkpointer.close();
+                store.stockProduct(new FoodProduct(100_000 + round, "Roll", 1.00, LocalDate.now().plusDays(10), 1));
+            }
+        }
+    }
+
+    @Test
+    public void testTornTailRecordIsDropped() throws Exception {
+        Cashier cashier = new Cashier(1, "Mariya", 1000);
+        try (StateLog log = StateLog.open(tempDir)) {
+            Store store = newStore();
+            store.recover(log);
+            store.registerCashier(cashier);
+            store.stockProduct(new NonFoodProduct(1, "Soap", 2.00, LocalDate.now().plusDays(30), 10));
+            store.processTransaction(cashier, Map.of(1, 4));
+        }
+        Path segment;
+        try (var segments = Files.list(tempDir)) {
+            segment = segments.filter(path -> path.getFileName().toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        Files.write(segment, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (StateLog log = StateLog.open(tempDir)) {
+            Store recovered = newStore();
+            recovered.recover(log);
+            assertEquals(6, recovered.findProductById(1).getQty());
+            assertEquals(1, recovered.getTotalTransactionCount());
+        }
+    }
+
+    @Test
+    public void testRecoveryMustComeFirst() throws Exception {
+        Store store = newStore();
+        store.stockProduct(new NonFoodProduct(1, "Soap", 2.00, LocalDate.now().plusDays(30), 10));
+        try (StateLog log = StateLog.open(tempDir)) {
+            assertThrows(IllegalStateException.class, () -> store.recover(log));
+        }
+        assertThrows(IllegalStateException.class, store::checkpoint);
+    }
+}
@@ -1,5 +1,7 @@
 import model.*;
 import exception.*;
+import persistence.DirectReceiptPersister;
+import persistence.ReceiptSequence;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.AfterEach;
@@ -8,11 +10,22 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -243,4 +256,506 @@ public class StoreTest {
         assertNotNull(updatedWaffle);
         assertEquals(initialWaffleQty - 3, updatedWaffle.getQty());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testDuplicateProductIdRejected() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            store.stockProduct(new FoodProduct(100, "Another Waffle", 1.20, LocalDate.now().plusDays(5), 4));
+        });
+
+        assertEquals(2, store.getStoreInventory().size());
+        assertEquals("Waffle", store.findProductById(100).getName());
+    }
+
+    @Test
+    public void testLookupInLargeCatalog() {
+        for (int id = 1000; id < 21000; id++) {
+            store.stockProduct(new NonFoodProduct(id, "Item " + id, 1.00, LocalDate.now().plusDays(100), 1));
+        }
+
+        assertEquals(20002, store.getStoreInventory().size());
+        assertEquals("Item 1000", store.findProductById(1000).getName());
+        assertEquals("Item 20999", store.findProductById(20999).getName());
+        assertEquals("Parfum", store.findProductById(200).getName());
+        assertNull(store.findProductById(21000));
+        assertNull(store.findProductById(-1));
+    }
+
+    @Test
+    public void testFailedBasketLeavesStockUntouched() {
+        Map<Integer, Integer> basket = new HashMap<>();
+        basket.put(100, 2);
+        basket.put(200, 99);
+
+        assertThrows(OutOfStockException.class, () -> {
+            store.processTransaction(cashier, basket);
+        });
+
+        assertEquals(10, store.findProductById(100).getQty());
+        assertEquals(5, store.findProductById(200).getQty());
+        assertEquals(0, store.getTotalTransactionCount());
+    }
+
+    @Test
+    public void testConcurrentCheckoutNeverOversells() throws Exception {
+        for (int id = 1; id <= 8; id++) {
+            store.stockProduct(new NonFoodProduct(id, "Shared " + id, 1.00, LocalDate.now().plusDays(100), 50));
+        }
+
+        int tills = 8;
+        int basketsPerTill = 40;
+        ExecutorService executor = Executors.newFixedThreadPool(tills);
+        List<Future<List<Receipt>>> results = new ArrayList<>();
+        for (int t = 0; t < tills; t++) {
+            int till = t;
+            results.add(executor.submit(() -> {
+                List<Receipt> sold = new ArrayList<>();
+                for (int b = 0; b < basketsPerTill; b++) {
+                    Map<Integer, Integer> basket = new HashMap<>();
+                    basket.put(1 + (till + b) % 8, 1);
+                    basket.put(1 + (till + b + 3) % 8, 1);
+                    try {
+                        sold.add(store.processTransaction(cashier, basket));
+                    } catch (OutOfStockException e) {
+                        // expected once the shared products run out
+                    }
+                }
+                return sold;
+            }));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        int receiptCount = 0;
+        for (Future<List<Receipt>> result : results) {
+            for (Receipt receipt : result.get()) {
+                createdFiles.add("receipt-" + receipt.getNumber() + ".txt");
+                createdFiles.add("receipt-" + receipt.getNumber() + ".ser");
+                receiptCount++;
+            }
+        }
+
+        int remaining = 0;
+        for (int id = 1; id <= 8; id++) {
+            int qty = store.findProductById(id).getQty();
+            assertTrue(qty >= 0);
+            remaining += qty;
+        }
+        assertEquals(8 * 50 - 2 * receiptCount, remaining);
+        assertEquals(receiptCount, store.getTotalTransactionCount());
+        assertEquals(receiptCount, store.getAllTransactions().stream().mapToInt(Receipt::getNumber).distinct().count());
+    }
+
+    @Test
+    public void testRunningTotalsMatchFullRecomputation() throws Exception {
+        store.registerCashier(new Cashier(2, "Ivan", 1234.56));
+        store.stockProduct(new FoodProduct(300, "Bread", 0.85, LocalDate.now().plusDays(10), 40));
+
+        for (int i = 0; i < 5; i++) {
+            Map<Integer, Integer> basket = new HashMap<>();
+            basket.put(100, 1);
+            basket.put(300, 3);
+            Receipt receipt = store.processTransaction(cashier, basket);
+            createdFiles.add("receipt-" + receipt.getNumber() + ".txt");
+            createdFiles.add("receipt-" + receipt.getNumber() + ".ser");
+        }
+        Map<Integer, Integer> rejected = new HashMap<>();
+        rejected.put(300, 1);
+        rejected.put(200, 50);
+        assertThrows(OutOfStockException.class, () -> store.processTransaction(cashier, rejected));
+
+        double revenue = store.getAllTransactions().stream().mapToDouble(Receipt::getTotalAmount).sum();
+        double payroll = store.getStoreEmployees().stream().mapToDouble(Cashier::getSalary).sum();
+        double delivery = store.getStoreInventory().stream()
+                .mapToDouble(item -> item.getDeliveryPrice() * item.getQty()).sum();
+
+        assertEquals(revenue, store.computeTotalRevenue(), 1e-9);
+        assertEquals(payroll, store.computeStaffPayroll(), 1e-9);
+        assertEquals(delivery, store.computeDeliveryCosts(), 1e-9);
+        assertEquals(revenue - payroll - delivery, store.computeNetProfit(), 1e-9);
+    }
+
+    @Test
+    public void testFindItemsCloseToExpiry() throws Exception {
+        store.stockProduct(new FoodProduct(302, "Old Cheese", 3.50, LocalDate.now().minusDays(1), 3));
+        store.stockProduct(new FoodProduct(303, "Yogurt", 0.80, LocalDate.now(), 1));
+
+        List<Product> closeToExpiry = store.findItemsCloseToExpiry(LocalDate.now());
+        assertTrue(closeToExpiry.stream().anyMatch(p -> p.getId() == 100));
+        assertTrue(closeToExpiry.stream().anyMatch(p -> p.getId() == 303));
+        assertTrue(closeToExpiry.stream().noneMatch(p -> p.getId() == 200 || p.getId() == 302));
+        for (Product product : store.getStoreInventory()) {
+            boolean expected = product.isCloseToExpire(LocalDate.now(), 3);
+            assertEquals(expected, closeToExpiry.contains(product), product.getName());
+        }
+
+        Map<Integer, Integer> basket = new HashMap<>();
+        basket.put(303, 1);
+        Receipt receipt = store.processTransaction(cashier, basket);
+        createdFiles.add("receipt-" + receipt.getNumber() + ".txt");
+        createdFiles.add("receipt-" + receipt.getNumber() + ".ser");
+
+        assertTrue(store.findItemsCloseToExpiry(LocalDate.now()).stream().noneMatch(p -> p.getId() == 303));
+        assertTrue(store.findExpiredItems(LocalDate.now().plusDays(1)).stream().noneMatch(p -> p.getId() == 303));
+        assertTrue(store.findExpiredItems(LocalDate.now().plusDays(1)).stream().anyMatch(p -> p.getId() == 302));
+    }
+
+    @Test
+    public void testLowStockIndexFollowsSales() throws Exception {
+        assertEquals(List.of(200), store.findItemsRunningLow(5).stream().map(Product::getId).toList());
+
+        Map<Integer, Integer> basket = new HashMap<>();
+        basket.put(100, 6);
+        Receipt receipt = store.processTransaction(cashier, basket);
+        createdFiles.add("receipt-" + receipt.getNumber() + ".txt");
+        createdFiles.add("receipt-" + receipt.getNumber() + ".ser");
+
+        List<Product> lowStock = store.findItemsRunningLow(5);
+        assertEquals(2, lowStock.size());
+        assertEquals(100, lowStock.get(0).getId());
+        for (Product product : store.getStoreInventory()) {
+            assertEquals(product.getQty() <= 4, store.findItemsRunningLow(4).contains(product));
+        }
+    }
+
+    @Test
+    public void testWatermarkFiresOnceWhenCrossed() throws Exception {
+        List<String> events = new ArrayList<>();
+        store.findProductById(100).addWatermark(5, (product, threshold, quantity) ->
+                events.add(product.getName() + " " + threshold + " " + quantity));
+
+        for (int amount : new int[]{3, 3, 1}) {
+            Map<Integer, Integer> basket = new HashMap<>();
+            basket.put(100, amount);
+            Receipt receipt = store.processTransaction(cashier, basket);
+            createdFiles.add("receipt-" + receipt.getNumber() + ".txt");
+            createdFiles.add("receipt-" + receipt.getNumber() + ".ser");
+        }
+
+        assertEquals(List.of("Waffle 5 4"), events);
+    }
+
+    @Test
+    public void testProductCannotBeStockedInTwoStores() {
+        Product shared = new NonFoodProduct(400, "Soap", 1.10, LocalDate.now().plusDays(90), 10);
+        store.stockProduct(shared);
+
+        Store otherStore = new Store(0.15, 3);
+        assertThrows(IllegalArgumentException.class, () -> otherStore.stockProduct(shared));
+    }
+
+    @Test
+    public void testPricesFollowTheBusinessDayOfTheClock() throws Exception {
+        MutableClock clock = new MutableClock(Instant.parse("2024-03-10T10:00:00Z"));
+        Store pricedStore = new Store(0.15, 3, new DirectReceiptPersister(receipts -> { }), clock);
+        pricedStore.stockProduct(new FoodProduct(1, "Milk", 2.00, LocalDate.of(2024, 3, 15), 100));
+
+        assertEquals(2.60, pricedStore.processTransaction(cashier, Map.of(1, 1)).getTotalAmount(), 1e-9);
+
+        clock.advanceDays(3);
+        assertEquals(2.60 * 0.85, pricedStore.processTransaction(cashier, Map.of(1, 1)).getTotalAmount(), 1e-9);
+
+        clock.advanceDays(3);
+        assertThrows(ExpiredProductException.class, () -> pricedStore.processTransaction(cashier, Map.of(1, 1)));
+        assertEquals(98, pricedStore.findProductById(1).getQty());
+    }
+
+    @Test
+    public void testProductsStockedMidDayArePriced() throws Exception {
+        MutableClock clock = new MutableClock(Instant.parse("2024-03-10T10:00:00Z"));
+        Store pricedStore = new Store(0.15, 3, new DirectReceiptPersister(receipts -> { }), clock);
+        for (int id = 1; id <= 40; id++) {
+            pricedStore.stockProduct(new NonFoodProduct(id, "Item " + id, id, LocalDate.of(2025, 1, 1), 5));
+        }
+        pricedStore.rollOverBusinessDay();
+        pricedStore.stockProduct(new NonFoodProduct(41, "Late item", 10.00, LocalDate.of(2025, 1, 1), 5));
+
+        assertEquals(15.00, pricedStore.processTransaction(cashier, Map.of(41, 1)).getTotalAmount(), 1e-9);
+        assertEquals(60.00, pricedStore.processTransaction(cashier, Map.of(40, 1)).getTotalAmount(), 1e-9);
+    }
+
+    @Test
+    public void testBatchNeverSellsAProductStockedAfterADayRollsOverForNothing() throws Exception {
+        MutableClock clock = new MutableClock(Instant.parse("2024-03-10T10:00:00Z"));
+        Store pricedStore = new Store(0.15, 3, new DirectReceiptPersister(receipts -> { }), clock);
+        int products = 4000;
+        AtomicInteger stocked = new AtomicInteger();
+        ExecutorService seller = Executors.newSingleThreadExecutor();
+        try {
+            Future<Long> cheapest = seller.submit(() -> {
+                long lowest = Long.MAX_VALUE;
+                while (stocked.get() < products) {
+                    // Many baskets widen the gap between reading the prices and resolving the last one.
+                    List<BasketOrder> orders = new ArrayList<>();
+                    for (int i = 0; i < 64; i++) {
+                        orders.add(new BasketOrder(cashier, Map.of(stocked.get() + 1, 1)));
+                    }
+                    for (CheckoutResult result : pricedStore.processBatch(orders)) {
+                        if (result.isAccepted()) {
+                            lowest = Math.min(lowest, result.getReceipt().getTotalAmountCents());
+                        }
+                    }
+                }
+                return lowest;
+            });
+            for (int id = 1; id <= products; id++) {
+                clock.advanceDays(1);
+                pricedStore.rollOverBusinessDay();
+                pricedStore.stockProduct(new NonFoodProduct(id, "Item " + id, 1.00, LocalDate.of(2100, 1, 1), 5));
+                stocked.set(id);
+            }
+            assertEquals(150, cheapest.get(30, TimeUnit.SECONDS));
+        } finally {
+            seller.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testReceiptsAreNumberedFromTheStoreSequence() throws Exception {
+        Path sequenceFile = tempDir.resolve("receipt.seq");
+        int firstRunNumber;
+        try (ReceiptSequence sequence = ReceiptSequence.open(sequenceFile)) {
+            Store numberedStore = new Store(0.15, 3, new DirectReceiptPersister(receipts -> { }),
+                    Clock.systemDefaultZone(), sequence);
+            numberedStore.stockProduct(new NonFoodProduct(1, "Soap", 1.00, LocalDate.now().plusDays(30), 10));
+            firstRunNumber = numberedStore.processTransaction(cashier, Map.of(1, 1)).getNumber();
+            assertEquals(1, firstRunNumber);
+        }
+
+        try (ReceiptSequence sequence = ReceiptSequence.open(sequenceFile)) {
+            Store restartedStore = new Store(0.15, 3, new DirectReceiptPersister(receipts -> { }),
+                    Clock.systemDefaultZone(), sequence);
+            restartedStore.stockProduct(new NonFoodProduct(1, "Soap", 1.00, LocalDate.now().plusDays(30), 10));
+            assertTrue(restartedStore.processTransaction(cashier, Map.of(1, 1)).getNumber() > firstRunNumber);
+        }
+    }
+
+    @Test
+    public void testBatchSettlesEveryBasketIndependently() throws Exception {
+        List<Integer> writes = new ArrayList<>();
+        Store batchStore = new Store(0.15, 3, new DirectReceiptPersister(receipts -> writes.add(receipts.size())));
+        batchStore.stockProduct(new NonFoodProduct(1, "Soap", 1.00, LocalDate.now().plusDays(30), 5));
+        batchStore.stockProduct(new FoodProduct(2, "Old milk", 1.00, LocalDate.now().minusDays(1), 5));
+
+        List<CheckoutResult> results = batchStore.processBatch(List.of(
+                new BasketOrder(cashier, Map.of(1, 3)),
+                new BasketOrder(cashier, Map.of(1, 3)),
+                new BasketOrder(cashier, Map.of(1, 1, 2, 1)),
+                new BasketOrder(cashier, Map.of(1, 2)),
+                new BasketOrder(cashier, Map.of())));
+
+        assertEquals(5, results.size());
+        assertTrue(results.get(0).isAccepted());
+        assertInstanceOf(OutOfStockException.class, results.get(1).getRejection());
+        assertInstanceOf(ExpiredProductException.class, results.get(2).getRejection());
+        assertTrue(results.get(3).isAccepted());
+        assertInstanceOf(InvalidReceiptException.class, results.get(4).getRejection());
+
+        assertEquals(0, batchStore.findProductById(1).getQty());
+        assertEquals(5, batchStore.findProductById(2).getQty());
+        assertEquals(List.of(2), writes);
+        assertEquals(2, batchStore.getTotalTransactionCount());
+        assertEquals(5 * 1.50, batchStore.computeTotalRevenue(), 1e-9);
+    }
+
+    @Test
+    public void testColumnarLayoutAnswersLikeIndexedLayout() throws Exception {
+        Store indexed = new Store(0.15, 3, new DirectReceiptPersister(receipts -> { }));
+        Store columnar = new Store(0.15, 3, new DirectReceiptPersister(receipts -> { }));
+        columnar.setCatalogLayout(CatalogLayout.COLUMNAR);
+        LocalDate today = LocalDate.now();
+        for (int id = 1; id <= 10_000; id++) {
+            for (Store target : List.of(indexed, columnar)) {
+                target.stockProduct(new NonFoodProduct(id, "Item " + id, 0.10 * (id % 50), today.plusDays(id % 20 - 5), id % 7));
+            }
+        }
+        for (int id = 1; id <= 10_000; id += 3) {
+            if (id % 20 >= 5 && id % 7 > 0) {
+                indexed.processTransaction(cashier, Map.of(id, 1));
+                columnar.processTransaction(cashier, Map.of(id, 1));
+            }
+        }
+
+        assertEquals(indexed.computeDeliveryCosts(), columnar.computeDeliveryCosts(), 1e-6);
+        assertEquals(idsOf(indexed.findExpiredItems(today)), idsOf(columnar.findExpiredItems(today)));
+        assertEquals(idsOf(indexed.findItemsCloseToExpiry(today)), idsOf(columnar.findItemsCloseToExpiry(today)));
+        assertEquals(idsOf(indexed.findItemsRunningLow(2)), idsOf(columnar.findItemsRunningLow(2)));
+        assertFalse(columnar.findItemsRunningLow(0).isEmpty());
+    }
+
+    @Test
+    public void testColumnarLayoutHandlesDatesBeyondIntEpochDays() {
+        Store indexed = new Store(0.15, 3, new DirectReceiptPersister(receipts -> { }));
+        Store columnar = new Store(0.15, 3, new DirectReceiptPersister(receipts -> { }));
+        columnar.setCatalogLayout(CatalogLayout.COLUMNAR);
+        for (Store target : List.of(indexed, columnar)) {
+            target.stockProduct(new NonFoodProduct(1, "Forever", 1.00, LocalDate.MAX, 5));
+            target.stockProduct(new NonFoodProduct(2, "Ancient", 1.00, LocalDate.MIN, 5));
+            target.stockProduct(new NonFoodProduct(3, "Fresh", 1.00, LocalDate.now().plusDays(1), 5));
+            // Its epoch day wraps to a negative int.
+            target.stockProduct(new NonFoodProduct(4, "Millennia", 1.00, LocalDate.ofEpochDay(Integer.MAX_VALUE + 10L), 5));
+        }
+
+        LocalDate today = LocalDate.now();
+        assertEquals(Set.of(2), idsOf(columnar.findExpiredItems(today)));
+        assertEquals(idsOf(indexed.findExpiredItems(today)), idsOf(columnar.findExpiredItems(today)));
+        assertEquals(idsOf(indexed.findItemsCloseToExpiry(today)), idsOf(columnar.findItemsCloseToExpiry(today)));
+        LocalDate farFuture = LocalDate.MAX.minusDays(2);
+        assertEquals(idsOf(indexed.findExpiredItems(farFuture)), idsOf(columnar.findExpiredItems(farFuture)));
+    }
+
+    @Test
+    public void testSalesDuringStockingKeepInventoryConsistent() throws Exception {
+        for (CatalogLayout layout : CatalogLayout.values()) {
+            Store target = new Store(0.15, 3, new DirectReceiptPersister(receipts -> { }));
+            target.setCatalogLayout(layout);
+            target.registerCashier(cashier);
+            int products = 3 * 4096 + 10;
+            AtomicInteger stocked = new AtomicInteger();
+            ExecutorService sellers = Executors.newFixedThreadPool(2);
+            try {
+                List<Future<?>> running = new ArrayList<>();
+                for (int seller = 0; seller < 2; seller++) {
+                    running.add(sellers.submit(() -> {
+                        Basket basket = new Basket();
+                        while (stocked.get() < products) {
+                            basket.clear();
+                            target.checkout(cashier, basket.add(stocked.get() + 1, 1));
+                        }
+                        return null;
+                    }));
+                }
+                LocalDate expiry = LocalDate.now().plusDays(30);
+                for (int id = 1; id <= products; id++) {
+                    target.stockProduct(new NonFoodProduct(id, "Item " + id, 1.00, expiry, 2));
+                    stocked.set(id);
+                }
+                for (Future<?> seller : running) {
+                    seller.get(30, TimeUnit.SECONDS);
+                }
+            } finally {
+                sellers.shutdownNow();
+            }
+
+            long expected = 0;
+            for (Product product : target.getStoreInventory()) {
+                expected += 100L * product.getQty();
+            }
+            assertEquals(expected, target.computeDeliveryCostsCents(), layout.toString());
+        }
+    }
+
+    @Test
+    public void testCatalogLayoutCannotChangeOnceStocked() {
+        assertThrows(IllegalStateException.class, () -> store.setCatalogLayout(CatalogLayout.COLUMNAR));
+    }
+
+    @Test
+    public void testReusedBasketSellsLikeAMap() throws Exception {
+        Store basketStore = new Store(0.15, 3, new DirectReceiptPersister(receipts -> { }));
+        basketStore.stockProduct(new NonFoodProduct(1, "Soap", 1.00, LocalDate.now().plusDays(30), 100));
+        basketStore.stockProduct(new NonFoodProduct(2, "Towel", 4.00, LocalDate.now().plusDays(30), 100));
+
+        Basket basket = new Basket(1);
+        basket.add(1, 1).add(2, 1).add(1, 2);
+        assertEquals(2, basket.size());
+        Receipt first = basketStore.processTransaction(cashier, basket);
+        assertEquals(basketStore.processTransaction(cashier, Map.of(1, 3, 2, 1)).getTotalAmountCents(),
+                first.getTotalAmountCents());
+
+        basket.clear();
+        assertTrue(basket.isEmpty());
+        basket.add(2, 5);
+        Receipt second = basketStore.processTransaction(cashier, basket);
+        assertEquals(1, second.getItems().size());
+        assertEquals(5 * 600, second.getTotalAmountCents());
+        assertEquals(100 - 6, basketStore.findProductById(1).getQty());
+        assertEquals(100 - 7, basketStore.findProductById(2).getQty());
+
+        basket.clear();
+        basket.add(1, 1_000);
+        assertThrows(OutOfStockException.class, () -> basketStore.processTransaction(cashier, basket));
+        assertThrows(IndexOutOfBoundsException.class, () -> basket.getProductId(1));
+    }
+
+    @Test
+    public void testBasketRejectsQuantitiesThatAreNotPositive() {
+        Basket basket = new Basket().add(1, 2);
+        assertThrows(IllegalArgumentException.class, () -> basket.add(1, -5));
+        assertThrows(IllegalArgumentException.class, () -> basket.add(2, 0));
+        assertThrows(IllegalArgumentException.class, () -> basket.add(1, Integer.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> Basket.of(Map.of(1, -5)));
+        assertEquals(1, basket.size());
+        assertEquals(2, basket.getQuantity(0));
+    }
+
+    @Test
+    public void testCheckoutReportsRejectionsWithoutThrowing() throws Exception {
+        Store resultStore = new Store(0.15, 3, new DirectReceiptPersister(receipts -> { }));
+        resultStore.stockProduct(new NonFoodProduct(1, "Soap", 1.00, LocalDate.now().plusDays(30), 2));
+        resultStore.stockProduct(new NonFoodProduct(2, "Milk", 1.00, LocalDate.now().minusDays(1), 5));
+
+        CheckoutResult sold = resultStore.checkout(cashier, new Basket().add(1, 1));
+        assertTrue(sold.isAccepted());
+        assertNull(sold.getRejectionCode());
+        assertNull(sold.getRejection());
+
+        CheckoutResult shortOfStock = resultStore.checkout(cashier, new Basket().add(1, 5));
+        assertFalse(shortOfStock.isAccepted());
+        assertEquals(RejectionCode.OUT_OF_STOCK, shortOfStock.getRejectionCode());
+        assertEquals(1, shortOfStock.getProductId());
+        assertEquals(1, shortOfStock.getAvailable());
+        OutOfStockException outOfStock = (OutOfStockException) shortOfStock.getRejection();
+        assertSame(outOfStock, shortOfStock.getRejection());
+        assertEquals(0, outOfStock.getStackTrace().length);
+        assertEquals("Not enough quantity of \"Soap\". We have only 1 available.", outOfStock.getMessage());
+
+        assertEquals(RejectionCode.EXPIRED, resultStore.checkout(cashier, new Basket().add(1, 1).add(2, 1)).getRejectionCode());
+        CheckoutResult unknown = resultStore.checkout(cashier, new Basket().add(99, 1));
+        assertEquals(RejectionCode.UNKNOWN_PRODUCT, unknown.getRejectionCode());
+        assertEquals(99, unknown.getProductId());
+        assertEquals(99, ((ExpiredProductException) unknown.getRejection()).getProductId());
+        assertEquals(RejectionCode.INVALID_RECEIPT, resultStore.checkout(cashier, new Basket()).getRejectionCode());
+
+        assertEquals(1, resultStore.findProductById(1).getQty());
+        assertEquals(1, resultStore.getTotalTransactionCount());
+        ExpiredProductException expired = assertThrows(ExpiredProductException.class,
+                () -> resultStore.processTransaction(cashier, Map.of(2, 1)));
+        assertEquals(0, expired.getStackTrace().length);
+    }
+
+    private static Set<Integer> idsOf(List<Product> products) {
+        Set<Integer> ids = new TreeSet<>();
+        for (Product product : products) {
+            ids.add(product.getId());
+        }
+        return ids;
+    }
+
+    private static final class MutableClock extends Clock {
+        private volatile Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advanceDays(int days) {
+            now = now.plusSeconds(days * 86_400L);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}